@@ -0,0 +1,76 @@
+package cum.jesus.ctni.natives;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link VectorKernels} against {@link ScalarKernels} on plain arrays, without any heap access in the way.
+ * Needs the jdk.incubator.vector module, which the jmh task adds.
+ *
+ * @author JesusTouchMe
+ * @since 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelsBenchmark {
+    @Param({"64", "8192"})
+    private int length;
+
+    private ScalarKernels scalar;
+    private ScalarKernels vector;
+    private int[] a;
+    private int[] b;
+
+    @Setup
+    public void setup() {
+        scalar = new ScalarKernels();
+        vector = VectorNatives.vectorKernels();
+        if (vector == null) {
+            throw new IllegalStateException("run with --add-modules jdk.incubator.vector");
+        }
+
+        Random random = new Random(1);
+        a = random.ints(length).toArray();
+        b = random.ints(length).toArray();
+    }
+
+    @Benchmark
+    public long scalarSum() {
+        return scalar.sum(a, 0, length);
+    }
+
+    @Benchmark
+    public long vectorSum() {
+        return vector.sum(a, 0, length);
+    }
+
+    @Benchmark
+    public long scalarDot() {
+        return scalar.dot(a, b, 0, length);
+    }
+
+    @Benchmark
+    public long vectorDot() {
+        return vector.dot(a, b, 0, length);
+    }
+
+    @Benchmark
+    public int[] scalarMinMax() {
+        int[] minMax = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        scalar.minMax(a, 0, length, minMax);
+        return minMax;
+    }
+
+    @Benchmark
+    public int[] vectorMinMax() {
+        int[] minMax = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        vector.minMax(a, 0, length, minMax);
+        return minMax;
+    }
+}
@@ -0,0 +1,92 @@
+package cum.jesus.ctni.natives;
+
+import cum.jesus.ctni.Handle;
+import cum.jesus.ctni.IEnvironment;
+import cum.jesus.ctni.NativeFunction;
+import cum.jesus.ctni.exception.BadHandleException;
+import cum.jesus.ctni.exception.SecurityException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link VectorNatives} bulk path against reading each element through {@link IEnvironment#Read(Handle, int)},
+ * which is what a native had to do before views existed. The jmh task adds the incubator module, so the bulk path uses {@link VectorKernels}.
+ * <p>
+ * {@link HeapEnvironment} is a plain array the JIT can see through, so its {@code Read} is far cheaper than a real vm's
+ * and the per-element numbers are a lower bound. {@link KernelsBenchmark} compares the kernels on their own.
+ *
+ * @author JesusTouchMe
+ * @since 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorNativesBenchmark {
+    @Param({"64", "4096", "65536"})
+    private int length;
+
+    private IEnvironment env;
+    private Handle a;
+    private Handle b;
+    private NativeFunction sum;
+    private NativeFunction dot;
+
+    @Setup
+    public void setup() throws BadHandleException, SecurityException {
+        env = new HeapEnvironment();
+        a = fill(new Random(1));
+        b = fill(new Random(2));
+
+        Map<String, NativeFunction> functions = new HashMap<>();
+        new VectorNatives().injectMethods(functions);
+        sum = functions.get("vec_sum");
+        dot = functions.get("vec_dot");
+
+        if (perElementSum() != bulkSum() || perElementDot() != bulkDot()) {
+            throw new IllegalStateException("bulk and per-element results differ");
+        }
+    }
+
+    @Benchmark
+    public long perElementSum() throws BadHandleException, SecurityException {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += env.GetIntFromHandle(env.Read(a, i), false);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long bulkSum() throws BadHandleException {
+        return env.GetLongFromHandle(sum.call(env, new Object[]{a, length}), false);
+    }
+
+    @Benchmark
+    public long perElementDot() throws BadHandleException, SecurityException {
+        long dot = 0;
+        for (int i = 0; i < length; i++) {
+            dot += (long) env.GetIntFromHandle(env.Read(a, i), false) * env.GetIntFromHandle(env.Read(b, i), false);
+        }
+        return dot;
+    }
+
+    @Benchmark
+    public long bulkDot() throws BadHandleException {
+        return env.GetLongFromHandle(dot.call(env, new Object[]{a, b, length}), false);
+    }
+
+    private Handle fill(Random random) throws BadHandleException, SecurityException {
+        Handle ptr = env.Alloc(length);
+        for (int i = 0; i < length; i++) {
+            env.Write(ptr, i, env.NewInt(random.nextInt()));
+        }
+        return ptr;
+    }
+}
@@ -0,0 +1,32 @@
+package cum.jesus.ctni;
+
+/**
+ * The outcome of a non-throwing memory access such as {@link IEnvironment#TryRead(Handle, int)}.
+ * Every status other than {@link #OK} corresponds to a case where the throwing variant would throw.
+ *
+ * @author JesusTouchMe
+ * @see IEnvironment#TryRead(Handle, int)
+ * @see IEnvironment#TryWrite(Handle, int, Handle)
+ * @since 1.1
+ */
+public enum AccessStatus {
+    /**
+     * The access succeeded.
+     */
+    OK,
+
+    /**
+     * The ptr handle is null or doesn't point to a memory allocation, where {@link cum.jesus.ctni.exception.BadHandleException} would be thrown.
+     */
+    BAD_HANDLE,
+
+    /**
+     * The offset is outside the allocation, where {@link cum.jesus.ctni.exception.SecurityException} would be thrown.
+     */
+    OUT_OF_BOUNDS,
+
+    /**
+     * The location is read or write protected, where {@link cum.jesus.ctni.exception.SecurityException} would be thrown.
+     */
+    PROTECTED
+}
@@ -0,0 +1,42 @@
+package cum.jesus.ctni;
+
+/**
+ * Receives sampled heap allocations from the vm after being registered with {@link IEnvironment#SetAllocationSampler(int, AllocationListener)}.
+ * Only about one in every sample rate allocations is reported, and only allocations that were reported are ever passed to
+ * {@link #onReAlloc(Handle, Handle, int)} and {@link #onFree(Handle)}, keeping the cost of unsampled allocations close to nothing. <br>
+ * Callbacks are made on the thread doing the allocation and may therefore happen concurrently. They should be quick and must not call back into the heap.
+ *
+ * @author JesusTouchMe
+ * @see IEnvironment#SetAllocationSampler(int, AllocationListener)
+ * @see cum.jesus.ctni.util.AllocationProfiler
+ * @since 1.1
+ */
+public interface AllocationListener {
+    /**
+     * Called after a sampled allocation was made by {@link IEnvironment#Alloc(int)}, {@link IEnvironment#ReAlloc(Handle, int)} with a null handle or by bytecode.
+     *
+     * @param allocation handle to the new allocation
+     * @param size the amount of values allocated
+     * @param site where the allocation was made
+     * @since 1.1
+     */
+    void onAlloc(Handle allocation, int size, AllocationSite site);
+
+    /**
+     * Called after a sampled allocation was resized. The new allocation stays sampled.
+     *
+     * @param oldAllocation handle to the allocation before resizing, which may be the same as newAllocation
+     * @param newAllocation handle to the resized allocation
+     * @param newSize the new amount of values in the allocation
+     * @since 1.1
+     */
+    void onReAlloc(Handle oldAllocation, Handle newAllocation, int newSize);
+
+    /**
+     * Called before a sampled allocation is freed, including by {@link IEnvironment#ReAlloc(Handle, int)} with a size of 0.
+     *
+     * @param allocation handle to the allocation being freed
+     * @since 1.1
+     */
+    void onFree(Handle allocation);
+}
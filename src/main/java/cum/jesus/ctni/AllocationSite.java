@@ -0,0 +1,48 @@
+package cum.jesus.ctni;
+
+/**
+ * Where a sampled heap allocation was made, passed to {@link AllocationListener#onAlloc(Handle, int, AllocationSite)}.
+ * This is the same context {@link DiagnosticReport#module()} and {@link DiagnosticReport#function()} give for errors,
+ * together with the native function that made the allocation if it wasn't made by bytecode.
+ *
+ * @author JesusTouchMe
+ * @see AllocationListener
+ * @since 1.1
+ */
+public interface AllocationSite {
+    /**
+     * The handle pointing to the module the allocation was made in.
+     * Never null.
+     *
+     * @return module handle of the allocation
+     * @since 1.1
+     */
+    Handle module();
+
+    /**
+     * The handle pointing to the ct function the allocation was made in.
+     * Never null.
+     *
+     * @return function handle of the allocation
+     * @since 1.1
+     */
+    Handle function();
+
+    /**
+     * The name of the ct function the allocation was made in, in the form "module.function".
+     * Never null.
+     *
+     * @return qualified function name
+     * @since 1.1
+     */
+    String functionName();
+
+    /**
+     * The name the native function which made the allocation was registered with in {@link INativeLoader#injectMethods(java.util.Map)}.
+     * Null if the allocation was made by bytecode.
+     *
+     * @return name of the allocating native function or null
+     * @since 1.1
+     */
+    String nativeFrame();
+}
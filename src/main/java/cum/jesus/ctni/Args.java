@@ -0,0 +1,122 @@
+package cum.jesus.ctni;
+
+import cum.jesus.ctni.exception.BadHandleException;
+
+/**
+ * A lightweight view over the argument slots of a native call.
+ * Unlike the {@code Object[]} passed to {@link NativeFunction#call(IEnvironment, Object[])}, nothing is converted to a Java type until it's accessed,
+ * so arguments that are never read or that are only passed along as handles cost nothing. <br>
+ * An instance is only valid for the duration of the native call it was passed to and must not be stored or used from another thread.
+ * <br><br>
+ * All indices start at 0 and must be less than {@link #size()}, otherwise an {@link IndexOutOfBoundsException} is thrown.
+ *
+ * @author JesusTouchMe
+ * @see NativeFunction#call(IEnvironment, Args)
+ * @since 1.1
+ */
+public interface Args {
+    /**
+     * The kinds of values an argument slot can hold.
+     *
+     * @since 1.1
+     */
+    enum Kind {
+        BYTE,
+        SHORT,
+        INT,
+        LONG,
+        STRING,
+
+        /**
+         * Any value which doesn't have a Java counterpart (e.g. modules, functions and heap allocations).
+         * These can only be accessed with {@link #getHandle(int)}.
+         */
+        HANDLE
+    }
+
+    /**
+     * Amount of arguments passed to the native call. This is always the {@link NativeFunction#argc()} of the called function.
+     *
+     * @return argument count
+     * @since 1.1
+     */
+    int size();
+
+    /**
+     * Checks the kind of value at an argument slot without converting it.
+     *
+     * @param index argument index
+     * @return the kind of the argument, never null
+     * @since 1.1
+     */
+    Kind kind(int index);
+
+    /**
+     * Retrieves an argument as a Java byte. Any number will work and is truncated like a cast would.
+     *
+     * @param index argument index
+     * @return the argument as a byte
+     * @throws BadHandleException if the argument isn't a number
+     * @since 1.1
+     */
+    byte getByte(int index) throws BadHandleException;
+
+    /**
+     * Retrieves an argument as a Java short. Any number will work and is truncated like a cast would.
+     *
+     * @param index argument index
+     * @return the argument as a short
+     * @throws BadHandleException if the argument isn't a number
+     * @since 1.1
+     */
+    short getShort(int index) throws BadHandleException;
+
+    /**
+     * Retrieves an argument as a Java int. Any number will work and is truncated like a cast would.
+     *
+     * @param index argument index
+     * @return the argument as an int
+     * @throws BadHandleException if the argument isn't a number
+     * @since 1.1
+     */
+    int getInt(int index) throws BadHandleException;
+
+    /**
+     * Retrieves an argument as a Java long. Any number will work.
+     *
+     * @param index argument index
+     * @return the argument as a long
+     * @throws BadHandleException if the argument isn't a number
+     * @since 1.1
+     */
+    long getLong(int index) throws BadHandleException;
+
+    /**
+     * Retrieves an argument as a Java String.
+     *
+     * @param index argument index
+     * @return the argument as a string
+     * @throws BadHandleException if the argument isn't a string
+     * @since 1.1
+     */
+    String getString(int index) throws BadHandleException;
+
+    /**
+     * Retrieves the handle of an argument without converting it. This works for every kind of argument
+     * and is the cheapest way of passing an argument along to another vm call.
+     *
+     * @param index argument index
+     * @return handle of the argument
+     * @since 1.1
+     */
+    Handle getHandle(int index);
+
+    /**
+     * Converts every argument to a Java type, exactly like the vm does before calling {@link NativeFunction#call(IEnvironment, Object[])}.
+     * This throws away all benefits of this view and is mainly meant for falling back to the old entry point.
+     *
+     * @return a new array of the arguments as Java types
+     * @since 1.1
+     */
+    Object[] toArray();
+}
@@ -29,6 +29,16 @@ public interface DiagnosticReport {
      */
     Handle function();
 
+    /**
+     * The index of the element being processed when this error occurred, for errors reported by bulk operations such as {@link IEnvironment#ParallelMap(Handle, Handle, Handle, int)}.
+     *
+     * @return element index or -1 if the error isn't related to an element
+     * @since 1.1
+     */
+    default int elementIndex() {
+        return -1;
+    }
+
     /**
      * Whether the error was causes by a native library, the vm itself or bytecode
      *
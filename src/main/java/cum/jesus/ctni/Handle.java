@@ -3,9 +3,26 @@ package cum.jesus.ctni;
 /**
  * This is an opaque type which all data in the vm implements.
  * This is used for passing around data without the native interface requiring all the data types.
+ * <br><br>
+ * Every handle has an {@link #id()} identifying the vm value it points to, which makes handles usable as keys in caches inside natives.
+ * Implementations must follow this contract for {@link Object#equals(Object)} and {@link Object#hashCode()}:
+ * <ul>
+ *     <li>two handles are equal if and only if their ids are equal, even if they are different Java objects</li>
+ *     <li>the hash code of a handle is {@code Long.hashCode(id())}</li>
+ * </ul>
+ * For caches that are hit often, {@link cum.jesus.ctni.util.HandleMap} and {@link cum.jesus.ctni.util.HandleLongMap} key directly on the id without boxing.
  *
  * @author JesusTouchMe
  * @since 1.0
  */
 public interface Handle {
+    /**
+     * The id of the vm value this handle points to. It stays the same for as long as the value is alive,
+     * and no other live value has the same id. Ids of values which have been freed may be reused.
+     *
+     * @return id of the value
+     * @see cum.jesus.ctni.util.HandleMap
+     * @since 1.1
+     */
+    long id();
 }
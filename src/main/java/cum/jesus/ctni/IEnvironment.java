@@ -3,6 +3,7 @@ package cum.jesus.ctni;
 import cum.jesus.ctni.exception.BadHandleException;
 import cum.jesus.ctni.exception.SecurityException;
 
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -12,6 +13,11 @@ import java.util.List;
  * This interface is implemented and provided by the vm to native functions.
  * <br><br>
  * The main way this passes around values is by using {@link cum.jesus.ctni.Handle}s as they act as a better abstraction than entire vm data classes.
+ * <br><br>
+ * The heap functions ({@link #Alloc(int)}, {@link #ReAlloc(Handle, int)}, {@link #Free(Handle)} and the {@code New*} constructors) are safe to call from multiple threads
+ * at once without any external locking. Every thread allocates from its own allocation buffer, so small allocations never contend with other threads,
+ * and allocations freed by another thread than the one that made them are handed back to their owner without locking.
+ * Freeing or resizing an allocation that another thread is accessing through a {@link MemoryView} is still undefined, see {@link MemoryView}.
  *
  * @author JesusTouchMe
  * @see Handle
@@ -69,6 +75,17 @@ public interface IEnvironment {
      */
     DiagnosticReport[] GetAllErrors();
 
+    /**
+     * Captures the current call stack of every vm thread, including native functions at their place in it.
+     * This may be called from any thread and doesn't stop the vm threads for longer than it takes to copy their stacks.
+     *
+     * @return a sample for every vm thread, never null
+     * @see StackSample
+     * @see cum.jesus.ctni.util.SamplingProfiler
+     * @since 1.1
+     */
+    StackSample[] SampleStacks();
+
     /**
      * Searches for a function within the module pointed to by the given handle.
      * The name is a case-sensitive string.
@@ -461,6 +478,109 @@ public interface IEnvironment {
      */
     Handle CallHandleFunctionL(Handle function, List<Object> args) throws BadHandleException;
 
+    /**
+     * Will call a function pointed to by the given handle and return a read-only borrowed handle to the returned value instead of cloning it.
+     * The borrow ends when the native makes its next function or interrupt call (any {@code Call*Function}, {@link #CallInterruptFunction(int, byte, byte, byte, Object...)}
+     * or {@link InterruptSite} invoke) or when the current native frame ends, whichever happens first. Inspecting the handle doesn't end the borrow. <br>
+     * The handle is read-only, see {@link #IsBorrowed(Handle)} for what's rejected on it.
+     * Use {@link #Clone(Handle)} on the result if the value has to be kept around.
+     * In cases of functions which return void, this may return a garbage value due to how functions are managed at runtime.
+     *
+     * @param function handle to the function that should be called
+     * @param args varargs of Java type values that the vm should pass to the function
+     * @return borrowed handle of the function return value
+     * @throws BadHandleException if the function handle is either null or doesn't point to a valid function
+     * @see #GetFunction(String)
+     * @see #Clone(Handle)
+     * @see #CallHandleFunctionBorrowedA(Handle, Object[])
+     * @see #CallHandleFunctionBorrowedL(Handle, List)
+     * @since 1.1
+     */
+    Handle CallHandleFunctionBorrowed(Handle function, Object... args) throws BadHandleException;
+
+    /**
+     * Will call a function pointed to by the given handle and return a read-only borrowed handle to the returned value instead of cloning it.
+     * The borrow ends when the native makes its next function or interrupt call (any {@code Call*Function}, {@link #CallInterruptFunction(int, byte, byte, byte, Object...)}
+     * or {@link InterruptSite} invoke) or when the current native frame ends, whichever happens first. Inspecting the handle doesn't end the borrow. <br>
+     * The handle is read-only, see {@link #IsBorrowed(Handle)} for what's rejected on it.
+     * Use {@link #Clone(Handle)} on the result if the value has to be kept around.
+     * In cases of functions which return void, this may return a garbage value due to how functions are managed at runtime.
+     *
+     * @param function handle to the function that should be called
+     * @param args array of Java type values that the vm should pass to the function
+     * @return borrowed handle of the function return value
+     * @throws BadHandleException if the function handle is either null or doesn't point to a valid function
+     * @see #GetFunction(String)
+     * @see #Clone(Handle)
+     * @see #CallHandleFunctionBorrowed(Handle, Object...)
+     * @see #CallHandleFunctionBorrowedL(Handle, List)
+     * @since 1.1
+     */
+    Handle CallHandleFunctionBorrowedA(Handle function, Object[] args) throws BadHandleException;
+
+    /**
+     * Will call a function pointed to by the given handle and return a read-only borrowed handle to the returned value instead of cloning it.
+     * The borrow ends when the native makes its next function or interrupt call (any {@code Call*Function}, {@link #CallInterruptFunction(int, byte, byte, byte, Object...)}
+     * or {@link InterruptSite} invoke) or when the current native frame ends, whichever happens first. Inspecting the handle doesn't end the borrow. <br>
+     * The handle is read-only, see {@link #IsBorrowed(Handle)} for what's rejected on it.
+     * Use {@link #Clone(Handle)} on the result if the value has to be kept around.
+     * In cases of functions which return void, this may return a garbage value due to how functions are managed at runtime.
+     *
+     * @param function handle to the function that should be called
+     * @param args a standard {@link List} of Java type values that the vm should pass to the function
+     * @return borrowed handle of the function return value
+     * @throws BadHandleException if the function handle is either null or doesn't point to a valid function
+     * @see #GetFunction(String)
+     * @see #Clone(Handle)
+     * @see #CallHandleFunctionBorrowed(Handle, Object...)
+     * @see #CallHandleFunctionBorrowedA(Handle, Object[])
+     * @since 1.1
+     */
+    Handle CallHandleFunctionBorrowedL(Handle function, List<Object> args) throws BadHandleException;
+
+    /**
+     * Applies a function to every element of a heap allocation in parallel and writes the results to another allocation, like {@code dst[i] = function(src[i])} (pseudocode).
+     * The range is split across a {@link java.util.concurrent.ForkJoinPool} where every worker runs the function in its own vm execution context,
+     * so the function has to be pure, meaning it may not depend on or change any state other than its argument. <br>
+     * src and dst may be the same allocation. This returns once every element has been processed.
+     * <br><br>
+     * Errors don't stop the other elements from being processed. Every failed element is left unwritten in dst and reported to diagnostics
+     * with its index available through {@link DiagnosticReport#elementIndex()}.
+     *
+     * @param function handle to a function taking one argument
+     * @param src handle to the heap allocation to read the elements from
+     * @param dst handle to the heap allocation to write the results to
+     * @param len amount of elements, starting at offset 0
+     * @return the amount of elements that failed, 0 if all succeeded
+     * @throws BadHandleException if the function handle doesn't point to a valid function or src or dst don't point to memory allocations
+     * @see #ParallelReduce(Handle, Handle, int, Handle)
+     * @see #GetAllErrors()
+     * @since 1.1
+     */
+    int ParallelMap(Handle function, Handle src, Handle dst, int len) throws BadHandleException;
+
+    /**
+     * Combines every element of a heap allocation into a single value in parallel, like {@code acc = function(acc, src[i])} (pseudocode).
+     * The range is split across a {@link java.util.concurrent.ForkJoinPool} where every worker reduces its part starting from identity in its own vm execution context,
+     * after which the partial results are combined with the same function. The function therefore has to be pure and associative,
+     * and identity has to be its identity value (e.g. 0 for addition). <br>
+     * <br><br>
+     * A reduction missing any element would be wrong, so if the function fails for any element or while combining partial results, this returns null.
+     * The remaining work is then cancelled, and every failure seen until then is reported to diagnostics,
+     * with the index of the element available through {@link DiagnosticReport#elementIndex()} (-1 for a failure while combining).
+     *
+     * @param function handle to a function taking two arguments, the accumulated value and an element
+     * @param src handle to the heap allocation to read the elements from
+     * @param len amount of elements, starting at offset 0
+     * @param identity handle to the identity value of the function
+     * @return cloned handle of the reduced value, which is a clone of identity if len is 0, or null if the function failed
+     * @throws BadHandleException if the function handle doesn't point to a valid function, src doesn't point to a memory allocation or identity is null
+     * @see #ParallelMap(Handle, Handle, Handle, int)
+     * @see #GetAllErrors()
+     * @since 1.1
+     */
+    Handle ParallelReduce(Handle function, Handle src, int len, Handle identity) throws BadHandleException;
+
     /**
      * Acts as if the int instruction of bytecode was used, passing the bytes and arguments.
      * In cases where the int call has no return, the returned handle may be garbage.
@@ -471,10 +591,27 @@ public interface IEnvironment {
      * @param byte3 int id byte1 byte2 byte3
      * @param args varargs of Java type values that the vm will wrap to ct and pass to the call
      * @return cloned handle of the function return value
+     * @see #ResolveInterrupt(int, byte, byte, byte)
      * @since 1.0
      */
     Handle CallInterruptFunction(int id, byte byte1, byte byte2, byte byte3, Object... args);
 
+    /**
+     * Decodes an interrupt call once and returns a site which can be invoked any amount of times without decoding it again.
+     * The vm keeps registered interrupts in a dense table indexed by id, so invoking a site is a single table lookup. <br>
+     * This should be preferred over {@link #CallInterruptFunction(int, byte, byte, byte, Object...)} when the same interrupt is issued repeatedly.
+     *
+     * @param id id of the interrupt call
+     * @param byte1 int id byte1 byte2 byte3
+     * @param byte2 int id byte1 byte2 byte3
+     * @param byte3 int id byte1 byte2 byte3
+     * @return the resolved interrupt site or null if no interrupt is registered for the given id
+     * @see InterruptSite
+     * @see #CallInterruptFunction(int, byte, byte, byte, Object...)
+     * @since 1.1
+     */
+    InterruptSite ResolveInterrupt(int id, byte byte1, byte byte2, byte byte3);
+
     /**
      * Performs a check on a handle to see if it points to a byte.
      *
@@ -610,6 +747,95 @@ public interface IEnvironment {
      */
     String GetStringFromHandle(Handle handle) throws BadHandleException;
 
+    /**
+     * Performs a check on a handle to see if it's a borrowed handle, meaning it's read-only and only valid for a limited time.
+     * <br><br>
+     * Any function that only reads through a borrowed handle works like it does on any other handle and doesn't end the borrow
+     * (e.g. {@link #Read(Handle, int)}, {@link #ReadValues(Handle, int, int)}, {@link #TryRead(Handle, int)}, a {@link MemoryView.Access#READ} view,
+     * the {@code Get*FromHandle} and {@code Is*} functions and {@link #Clone(Handle)}). Anything that would change or release the value is rejected and leaves it untouched:
+     * <ul>
+     *     <li>{@link #Write(Handle, int, Handle)} and {@link #WriteValues(Handle, int, Object[])} throw a {@link SecurityException}</li>
+     *     <li>{@link #TryWrite(Handle, int, Handle)} returns {@link AccessStatus#PROTECTED}</li>
+     *     <li>{@link #View(Handle, int, int, MemoryView.Access)} with a mode that includes writing throws a {@link SecurityException}</li>
+     *     <li>{@link #Free(Handle)} and {@link #ReAlloc(Handle, int)} report an error, and ReAlloc returns null</li>
+     * </ul>
+     * Using a borrowed handle after the borrow ended throws a {@link BadHandleException} where the function can throw one,
+     * otherwise it's reported as an error like any other invalid handle.
+     *
+     * @param handle handle to check
+     * @return true if the handle is borrowed, false otherwise
+     * @see #CallHandleFunctionBorrowed(Handle, Object...)
+     * @since 1.1
+     */
+    boolean IsBorrowed(Handle handle);
+
+    /**
+     * Clones the value pointed to by a handle and returns a handle to the clone.
+     * This is mainly used to keep a value returned by {@link #CallHandleFunctionBorrowed(Handle, Object...)} past the lifetime of the borrow.
+     * The clone is never borrowed, regardless of the given handle.
+     *
+     * @param handle handle to the value which should be cloned
+     * @return handle to the newly cloned value
+     * @throws BadHandleException if the handle is null or a borrowed handle which is no longer valid
+     * @since 1.1
+     */
+    Handle Clone(Handle handle) throws BadHandleException;
+
+    /**
+     * Retrieves a byte from a handle like {@link #GetByteFromHandle(Handle, boolean)} with strict typing, but returns a default value instead of throwing.
+     * This is meant for code where a type mismatch is an expected case rather than an error.
+     *
+     * @param handle the handle to retrieve the byte from
+     * @param defaultValue the value returned if the handle doesn't point to a valid byte
+     * @return retrieved byte or defaultValue
+     * @since 1.1
+     */
+    byte TryGetByteFromHandle(Handle handle, byte defaultValue);
+
+    /**
+     * Retrieves a short from a handle like {@link #GetShortFromHandle(Handle, boolean)} with strict typing, but returns a default value instead of throwing.
+     * This is meant for code where a type mismatch is an expected case rather than an error.
+     *
+     * @param handle the handle to retrieve the short from
+     * @param defaultValue the value returned if the handle doesn't point to a valid short
+     * @return retrieved short or defaultValue
+     * @since 1.1
+     */
+    short TryGetShortFromHandle(Handle handle, short defaultValue);
+
+    /**
+     * Retrieves an int from a handle like {@link #GetIntFromHandle(Handle, boolean)} with strict typing, but returns a default value instead of throwing.
+     * This is meant for code where a type mismatch is an expected case rather than an error.
+     *
+     * @param handle the handle to retrieve the int from
+     * @param defaultValue the value returned if the handle doesn't point to a valid int
+     * @return retrieved int or defaultValue
+     * @since 1.1
+     */
+    int TryGetIntFromHandle(Handle handle, int defaultValue);
+
+    /**
+     * Retrieves a long from a handle like {@link #GetLongFromHandle(Handle, boolean)} with strict typing, but returns a default value instead of throwing.
+     * This is meant for code where a type mismatch is an expected case rather than an error.
+     *
+     * @param handle the handle to retrieve the long from
+     * @param defaultValue the value returned if the handle doesn't point to a valid long
+     * @return retrieved long or defaultValue
+     * @since 1.1
+     */
+    long TryGetLongFromHandle(Handle handle, long defaultValue);
+
+    /**
+     * Retrieves a string from a handle like {@link #GetStringFromHandle(Handle)}, but returns a default value instead of throwing.
+     * This is meant for code where a type mismatch is an expected case rather than an error.
+     *
+     * @param handle the handle to retrieve the string from
+     * @param defaultValue the value returned if the handle doesn't point to a valid string
+     * @return retrieved string or defaultValue
+     * @since 1.1
+     */
+    String TryGetStringFromHandle(Handle handle, String defaultValue);
+
     /**
      * Constructs a new ct byte and returns a handle to it.
      *
@@ -657,6 +883,7 @@ public interface IEnvironment {
 
     /**
      * Allocates an amount of values on the heap and returns a handle to this allocation.
+     * Small allocations are served from the calling thread's allocation buffer without locking.
      *
      * @param size the amount of values to allocate
      * @return handle to the new allocation or null if out of memory or other error
@@ -668,26 +895,98 @@ public interface IEnvironment {
      * Will change the size of an allocation on the heap and returns the handle to the new allocation.
      * The old elements will remain unless it's being sized down. <br>
      * If the handle is null, creates a new allocation, if the new size is 0, frees an allocation. <br>
-     * Will report an error if the handle doesn't point to a heap allocation.
+     * Will report an error if the handle doesn't point to a heap allocation or is a borrowed handle.
      *
      * @param handle handle to the old allocation, must be allocated on heap
      * @param newSize new size of the allocations
      * @return handle to the newly resized allocation, can be the passed handle
      * @see #Alloc(int)
+     * @see MemoryView#isValid()
      * @since 1.0
      */
     Handle ReAlloc(Handle handle, int newSize);
 
     /**
      * Frees an allocation on the heap and deletes all values associated with it.
-     * Will report an error if handle isn't a valid heap allocation.
+     * Will report an error if handle isn't a valid heap allocation or is a borrowed handle. <br>
+     * This may be called from any thread, not only the one which made the allocation.
      *
      * @param handle handle to the allocation, must be allocated on heap
      * @see #GetLatestError()
+     * @see MemoryView#isValid()
      * @since 1.0
      */
     void Free(Handle handle);
 
+    /**
+     * Registers a listener which is told about roughly one in every rate heap allocations, replacing any previously registered listener.
+     * Which allocations are sampled is randomized so that allocation patterns can't hide from the sampler. <br>
+     * Passing a rate of 0 or a null listener turns sampling off.
+     *
+     * @param rate the average amount of allocations per sample, 1 samples every allocation
+     * @param listener the listener to report sampled allocations to
+     * @throws IllegalArgumentException if rate is negative
+     * @see AllocationListener
+     * @see cum.jesus.ctni.util.AllocationProfiler
+     * @since 1.1
+     */
+    void SetAllocationSampler(int rate, AllocationListener listener);
+
+    /**
+     * Hands the calling thread's allocation buffer back to the shared heap.
+     * Natives which allocate from their own worker threads should call this before such a thread ends, otherwise the unused part of its buffer
+     * stays reserved until the vm notices the thread is gone. Allocating again afterwards simply gives the thread a new buffer.
+     *
+     * @see #Alloc(int)
+     * @since 1.1
+     */
+    void ReleaseAllocationBuffer();
+
+    /**
+     * Writes every allocation on the heap to a snapshot file which can later be restored with {@link #RestoreHeap(Path)}, e.g. to skip building large tables at startup.
+     * The snapshot is a compact binary file laid out in pages so it can be memory mapped directly. It starts with a small header holding the format version,
+     * a stamp of the loaded modules and the page table, which has a checksum of its own, and every page carries a checksum of its contents. <br>
+     * Heap functions called by other threads wait while the snapshot is taken, so it's a consistent picture of the heap.
+     * The file is written to a temporary file first and moved into place, so an existing snapshot is never left half overwritten.
+     * Will report an error if the snapshot couldn't be written.
+     *
+     * @param path the file to write the snapshot to
+     * @return true if the snapshot was written, false otherwise
+     * @see #RestoreHeap(Path)
+     * @see #GetLatestError()
+     * @since 1.1
+     */
+    boolean SnapshotHeap(Path path);
+
+    /**
+     * Replaces the contents of the heap with a snapshot written by {@link #SnapshotHeap(Path)}.
+     * The file is memory mapped rather than read, and handles inside it are fixed up lazily the first time their page is accessed.
+     * <br><br>
+     * Before returning, only the header is checked: the format version, the module stamp and the checksum of the header and page table.
+     * This takes time proportional to the amount of pages, not their contents. A snapshot failing any of these checks is rejected and reported as an error,
+     * in which case the heap is left untouched. The checksum of each page is verified when the page is first accessed during the lazy fix-up.
+     * If that fails after this has returned true, the access fails like an access through an invalid handle ({@link BadHandleException} where the function
+     * can throw one), and an error with the snapshot path in its message is reported. Every allocation on the damaged page stays invalid,
+     * while the rest of the snapshot can still be used.
+     * <br><br>
+     * Restoring replaces the whole heap, so it affects everything referring to the old one:
+     * <ul>
+     *     <li>Handles to heap allocations obtained before restoring are invalid afterwards.</li>
+     *     <li>Every {@link MemoryView} is invalidated, exactly as if its allocation had been freed.</li>
+     *     <li>A registered {@link AllocationListener} stays registered and gets {@link AllocationListener#onFree(Handle)} for every sampled allocation
+     *     of the old heap before this returns. Allocations restored from the snapshot are never sampled.</li>
+     *     <li>Heap functions called by other threads wait until the restore is done and then operate on the restored heap,
+     *     and the allocation buffers of all threads are discarded. Other threads must not be accessing the heap through a view while restoring, like with {@link #Free(Handle)}.</li>
+     * </ul>
+     *
+     * @param path the snapshot file to restore
+     * @return true if the snapshot was restored, false if it was rejected or couldn't be read
+     * @see #SnapshotHeap(Path)
+     * @see #GetLatestError()
+     * @since 1.1
+     */
+    boolean RestoreHeap(Path path);
+
     /**
      * Attempts to read the value stored at a handle (preferably a heap allocation) at an offset.
      *
@@ -707,8 +1006,84 @@ public interface IEnvironment {
      * @param offset the offset at ptr to write to
      * @param value the value to write at ptr[offset] (pseudocode)
      * @throws BadHandleException If the provided ptr handle is null or doesn't point to a memory location
-     * @throws SecurityException if a write-protected memory location is attempted to write to
+     * @throws SecurityException if a write-protected memory location is attempted to write to or if ptr is a borrowed handle
+     * @see #IsBorrowed(Handle)
      * @since 1.0
      */
     void Write(Handle ptr, int offset, Handle value) throws BadHandleException, SecurityException;
+
+    /**
+     * Reads the value stored at a handle at an offset like {@link #Read(Handle, int)}, but reports failure through the result instead of throwing.
+     * This is meant for code where invalid reads are an expected case rather than an error.
+     *
+     * @param ptr handle to heap allocation
+     * @param offset the offset to read at
+     * @return the result holding the value stored at ptr[offset] (pseudocode) or why it couldn't be read, never null
+     * @see ReadResult
+     * @since 1.1
+     */
+    ReadResult TryRead(Handle ptr, int offset);
+
+    /**
+     * Writes a value at an offset like {@link #Write(Handle, int, Handle)}, but reports failure through the returned status instead of throwing.
+     * This is meant for code where invalid writes are an expected case rather than an error.
+     *
+     * @param ptr handle to heap allocation
+     * @param offset the offset at ptr to write to
+     * @param value the value to write at ptr[offset] (pseudocode)
+     * @return {@link AccessStatus#OK} if the value was written, otherwise the reason it wasn't, which is {@link AccessStatus#PROTECTED} for borrowed handles
+     * @see #IsBorrowed(Handle)
+     * @since 1.1
+     */
+    AccessStatus TryWrite(Handle ptr, int offset, Handle value);
+
+    /**
+     * Validates a range of a heap allocation for a kind of access once and returns a view for accessing it without checking again every time.
+     * This should be preferred over {@link #Read(Handle, int)} and {@link #Write(Handle, int, Handle)} when accessing many values in a loop. <br>
+     * The view is invalidated when the allocation is resized or freed, which the vm detects with a generation counter on the allocation.
+     * Views are meant for the thread that created them, see {@link MemoryView} for what's detected when another thread resizes or frees the allocation.
+     *
+     * @param ptr handle to heap allocation
+     * @param offset the offset of the first value in the view
+     * @param length the amount of values in the view
+     * @param mode the kind of access the view will be used for
+     * @return the validated view
+     * @throws BadHandleException if the provided ptr handle is null or doesn't point to a memory allocation
+     * @throws SecurityException if the range is outside the allocation, any location in it is protected against the access mode
+     *                           or if ptr is a borrowed handle and the mode includes writing
+     * @see MemoryView
+     * @since 1.1
+     */
+    MemoryView View(Handle ptr, int offset, int length, MemoryView.Access mode) throws BadHandleException, SecurityException;
+
+    /**
+     * Reads a contiguous range of values from a heap allocation in one operation and converts them to Java types,
+     * the same way arguments are converted before a native call. Values without a Java counterpart are returned as their {@link Handle}.
+     *
+     * @param ptr handle to heap allocation
+     * @param offset the offset of the first value to read
+     * @param count the amount of values to read
+     * @return a new array containing the values stored at ptr[offset] to ptr[offset + count - 1] (pseudocode)
+     * @throws BadHandleException if the provided ptr handle is null or doesn't point to a memory allocation
+     * @throws SecurityException if any location in the range is read-protected or outside the allocation
+     * @see #Read(Handle, int)
+     * @see cum.jesus.ctni.struct.StructCodec
+     * @since 1.1
+     */
+    Object[] ReadValues(Handle ptr, int offset, int count) throws BadHandleException, SecurityException;
+
+    /**
+     * Writes a contiguous range of Java type values to a heap allocation in one operation.
+     * The values are wrapped to ct values by the vm the same way function arguments are, and handles are written as they are.
+     *
+     * @param ptr handle to heap allocation
+     * @param offset the offset at ptr to write the first value to
+     * @param values the values to write starting at ptr[offset] (pseudocode)
+     * @throws BadHandleException if the provided ptr handle is null or doesn't point to a memory allocation
+     * @throws SecurityException if any location in the range is write-protected or outside the allocation, or if ptr is a borrowed handle
+     * @see #Write(Handle, int, Handle)
+     * @see cum.jesus.ctni.struct.StructCodec
+     * @since 1.1
+     */
+    void WriteValues(Handle ptr, int offset, Object[] values) throws BadHandleException, SecurityException;
 }
@@ -0,0 +1,95 @@
+package cum.jesus.ctni;
+
+/**
+ * A pre-resolved interrupt call obtained from {@link IEnvironment#ResolveInterrupt(int, byte, byte, byte)}.
+ * The vm decodes the id and the byte triple once when resolving, so invoking a site goes straight to the interrupt without decoding anything again. <br>
+ * The typed overloads pass their argument to the interrupt without wrapping it in a varargs array first,
+ * making them the preferred way of issuing the same interrupt over and over (e.g. writing to the console in a loop).
+ * <br><br>
+ * A site stays valid for as long as the vm that resolved it is running and may be cached by the library.
+ *
+ * @author JesusTouchMe
+ * @see IEnvironment#ResolveInterrupt(int, byte, byte, byte)
+ * @see IEnvironment#CallInterruptFunction(int, byte, byte, byte, Object...)
+ * @since 1.1
+ */
+public interface InterruptSite {
+    /**
+     * The id of the interrupt this site was resolved for.
+     *
+     * @return interrupt id
+     * @since 1.1
+     */
+    int id();
+
+    /**
+     * Invokes the interrupt with no arguments.
+     * In cases where the int call has no return, the returned handle may be garbage.
+     *
+     * @return cloned handle of the interrupt return value
+     * @since 1.1
+     */
+    Handle invoke();
+
+    /**
+     * Invokes the interrupt with a single value which is already a ct handle and therefore isn't wrapped by the vm.
+     * In cases where the int call has no return, the returned handle may be garbage.
+     *
+     * @param arg handle to pass to the interrupt
+     * @return cloned handle of the interrupt return value
+     * @since 1.1
+     */
+    Handle invoke(Handle arg);
+
+    /**
+     * Invokes the interrupt with two values which are already ct handles and therefore aren't wrapped by the vm.
+     * In cases where the int call has no return, the returned handle may be garbage.
+     *
+     * @param arg1 first handle to pass to the interrupt
+     * @param arg2 second handle to pass to the interrupt
+     * @return cloned handle of the interrupt return value
+     * @since 1.1
+     */
+    Handle invoke(Handle arg1, Handle arg2);
+
+    /**
+     * Invokes the interrupt with a single int which is wrapped to a ct int without being boxed.
+     * In cases where the int call has no return, the returned handle may be garbage.
+     *
+     * @param arg int to pass to the interrupt
+     * @return cloned handle of the interrupt return value
+     * @since 1.1
+     */
+    Handle invoke(int arg);
+
+    /**
+     * Invokes the interrupt with a single long which is wrapped to a ct long without being boxed.
+     * In cases where the int call has no return, the returned handle may be garbage.
+     *
+     * @param arg long to pass to the interrupt
+     * @return cloned handle of the interrupt return value
+     * @since 1.1
+     */
+    Handle invoke(long arg);
+
+    /**
+     * Invokes the interrupt with a single string which is wrapped to a ct string by the vm.
+     * In cases where the int call has no return, the returned handle may be garbage.
+     *
+     * @param arg string to pass to the interrupt
+     * @return cloned handle of the interrupt return value
+     * @since 1.1
+     */
+    Handle invoke(String arg);
+
+    /**
+     * Invokes the interrupt with any amount of arguments. This still skips decoding the interrupt,
+     * but the arguments are wrapped like in {@link IEnvironment#CallInterruptFunction(int, byte, byte, byte, Object...)}.
+     * In cases where the int call has no return, the returned handle may be garbage.
+     *
+     * @param args array of Java type values that the vm will wrap to ct and pass to the call
+     * @return cloned handle of the interrupt return value
+     * @since 1.1
+     */
+    Handle invokeA(Object[] args);
+}
@@ -0,0 +1,222 @@
+package cum.jesus.ctni;
+
+/**
+ * A pre-validated window into a heap allocation, obtained from {@link IEnvironment#View(Handle, int, int, Access)}.
+ * The allocation, the range and the permissions are checked once when the view is created, so accessing it only has to check the index against
+ * {@link #length()} and compare the generation of the allocation against the one the view was created for. <br>
+ * A view becomes invalid once its allocation is resized with {@link IEnvironment#ReAlloc(Handle, int)} or freed with {@link IEnvironment#Free(Handle)}.
+ * <br><br>
+ * A view is meant to be used by the thread that created it. The generation check only detects invalidation made by that thread,
+ * or by another thread whose ReAlloc or Free happens-before the access (e.g. through a lock or a volatile write the using thread has observed).
+ * This is what allows the JIT to hoist the check out of loops. Resizing or freeing the allocation from another thread while a view of it is in use,
+ * without such ordering, is undefined: the view may keep reading and writing the old memory without failing.
+ * <br><br>
+ * All indices are relative to the offset the view was created with, meaning index 0 is ptr[offset] (pseudocode).
+ * Accesses fail with unchecked exceptions as they are programming errors after the view has been validated:
+ * <ul>
+ *     <li>{@link IndexOutOfBoundsException} if an index is outside the view</li>
+ *     <li>{@link IllegalStateException} if the view has been invalidated</li>
+ *     <li>{@link UnsupportedOperationException} if the access isn't allowed by the {@link Access} mode of the view</li>
+ *     <li>{@link ClassCastException} if a value is read as a type it can't be converted to</li>
+ * </ul>
+ *
+ * @author JesusTouchMe
+ * @see IEnvironment#View(Handle, int, int, Access)
+ * @since 1.1
+ */
+public interface MemoryView {
+    /**
+     * The kinds of access a view can be created for.
+     *
+     * @since 1.1
+     */
+    enum Access {
+        READ,
+        WRITE,
+        READ_WRITE
+    }
+
+    /**
+     * Amount of values in the view.
+     *
+     * @return view length
+     * @since 1.1
+     */
+    int length();
+
+    /**
+     * The kind of access the view was validated for.
+     *
+     * @return access mode
+     * @since 1.1
+     */
+    Access mode();
+
+    /**
+     * Checks whether the allocation is still the one the view was created for, meaning it hasn't been resized or freed since.
+     * Like every access, this only sees a resize or free by another thread if it happens-before the call.
+     *
+     * @return true if the view can still be used, false otherwise
+     * @since 1.1
+     */
+    boolean isValid();
+
+    /**
+     * Reads the number at an index as a byte, converting any ct number like a cast would.
+     *
+     * @param index index in the view
+     * @return the number at the index as a byte
+     * @throws ClassCastException if the value at the index isn't a number
+     * @since 1.1
+     */
+    byte getByte(int index);
+
+    /**
+     * Reads the number at an index as a short, converting any ct number like a cast would.
+     *
+     * @param index index in the view
+     * @return the number at the index as a short
+     * @throws ClassCastException if the value at the index isn't a number
+     * @since 1.1
+     */
+    short getShort(int index);
+
+    /**
+     * Reads the number at an index as an int, converting any ct number like a cast would.
+     *
+     * @param index index in the view
+     * @return the number at the index as an int
+     * @throws ClassCastException if the value at the index isn't a number
+     * @since 1.1
+     */
+    int getInt(int index);
+
+    /**
+     * Reads the number at an index as a long, converting any ct number like a cast would.
+     *
+     * @param index index in the view
+     * @return the number at the index as a long
+     * @throws ClassCastException if the value at the index isn't a number
+     * @since 1.1
+     */
+    long getLong(int index);
+
+    /**
+     * Reads the string at an index.
+     *
+     * @param index index in the view
+     * @return the string at the index
+     * @throws ClassCastException if the value at the index isn't a string
+     * @since 1.1
+     */
+    String getString(int index);
+
+    /**
+     * Reads the handle of the value at an index without converting it. This works for any kind of value, so it never throws a {@link ClassCastException}.
+     *
+     * @param index index in the view
+     * @return handle to the value at the index
+     * @since 1.1
+     */
+    Handle getHandle(int index);
+
+    /**
+     * Stores a byte at an index as a ct byte, replacing whatever value was there.
+     *
+     * @param index index in the view
+     * @param value the byte to store
+     * @since 1.1
+     */
+    void setByte(int index, byte value);
+
+    /**
+     * Stores a short at an index as a ct short, replacing whatever value was there.
+     *
+     * @param index index in the view
+     * @param value the short to store
+     * @since 1.1
+     */
+    void setShort(int index, short value);
+
+    /**
+     * Stores an int at an index as a ct int, replacing whatever value was there.
+     *
+     * @param index index in the view
+     * @param value the int to store
+     * @since 1.1
+     */
+    void setInt(int index, int value);
+
+    /**
+     * Stores a long at an index as a ct long, replacing whatever value was there.
+     *
+     * @param index index in the view
+     * @param value the long to store
+     * @since 1.1
+     */
+    void setLong(int index, long value);
+
+    /**
+     * Stores a string at an index as a ct string, replacing whatever value was there.
+     *
+     * @param index index in the view
+     * @param value the string to store
+     * @since 1.1
+     */
+    void setString(int index, String value);
+
+    /**
+     * Stores the value a handle points to at an index, replacing whatever value was there.
+     *
+     * @param index index in the view
+     * @param value handle to the value to store
+     * @since 1.1
+     */
+    void setHandle(int index, Handle value);
+
+    /**
+     * Copies a range of numbers out of the view as ints in one operation, converting them like {@link #getInt(int)}.
+     *
+     * @param index index in the view of the first value
+     * @param dst array to copy to
+     * @param dstOffset index in dst of the first value
+     * @param length amount of values to copy
+     * @throws ClassCastException if any value in the range isn't a number
+     * @since 1.1
+     */
+    void getInts(int index, int[] dst, int dstOffset, int length);
+
+    /**
+     * Copies a range of numbers out of the view as longs in one operation, converting them like {@link #getLong(int)}.
+     *
+     * @param index index in the view of the first value
+     * @param dst array to copy to
+     * @param dstOffset index in dst of the first value
+     * @param length amount of values to copy
+     * @throws ClassCastException if any value in the range isn't a number
+     * @since 1.1
+     */
+    void getLongs(int index, long[] dst, int dstOffset, int length);
+
+    /**
+     * Stores a range of ints into the view as ct ints in one operation.
+     *
+     * @param index index in the view of the first value
+     * @param src array to copy from
+     * @param srcOffset index in src of the first value
+     * @param length amount of values to copy
+     * @since 1.1
+     */
+    void setInts(int index, int[] src, int srcOffset, int length);
+
+    /**
+     * Stores a range of longs into the view as ct longs in one operation.
+     *
+     * @param index index in the view of the first value
+     * @param src array to copy from
+     * @param srcOffset index in src of the first value
+     * @param length amount of values to copy
+     * @since 1.1
+     */
+    void setLongs(int index, long[] src, int srcOffset, int length);
+}
@@ -28,4 +28,20 @@ public interface NativeFunction {
      * @since 1.0
      */
     Handle call(IEnvironment env, Object[] args);
+
+    /**
+     * Calls the function with a view over the arguments instead of converting all of them to Java types beforehand.
+     * The vm always calls this entry point, which by default converts the arguments and forwards them to {@link #call(IEnvironment, Object[])}. <br>
+     * Override this when the function only reads some of its arguments or passes them along as handles, as nothing is converted until accessed: <br>
+     * {@code return env.NewInt(Math.addExact(args.getInt(0), args.getInt(1)))}
+     *
+     * @param env vm environment
+     * @param args view over the function args
+     * @return return value as ct handle
+     * @see Args
+     * @since 1.1
+     */
+    default Handle call(IEnvironment env, Args args) {
+        return call(env, args.toArray());
+    }
 }
@@ -0,0 +1,79 @@
+package cum.jesus.ctni;
+
+/**
+ * The result of {@link IEnvironment#TryRead(Handle, int)}, holding either the value that was read or the reason it couldn't be read.
+ * Failed results are shared instances, so a failing read never allocates.
+ *
+ * @author JesusTouchMe
+ * @see IEnvironment#TryRead(Handle, int)
+ * @since 1.1
+ */
+public final class ReadResult {
+    private static final ReadResult[] FAILURES;
+
+    static {
+        AccessStatus[] statuses = AccessStatus.values();
+        FAILURES = new ReadResult[statuses.length];
+        for (AccessStatus status : statuses) {
+            FAILURES[status.ordinal()] = new ReadResult(status, null);
+        }
+    }
+
+    private final AccessStatus status;
+    private final Handle value;
+
+    private ReadResult(AccessStatus status, Handle value) {
+        this.status = status;
+        this.value = value;
+    }
+
+    /**
+     * Constructs a successful result. Used by the vm.
+     *
+     * @param value handle to the value that was read
+     * @return a result with the {@link AccessStatus#OK} status
+     * @since 1.1
+     */
+    public static ReadResult ok(Handle value) {
+        return new ReadResult(AccessStatus.OK, value);
+    }
+
+    /**
+     * Gets the shared result for a failed read. Used by the vm.
+     *
+     * @param status the reason the read failed, must not be {@link AccessStatus#OK}
+     * @return a result without a value
+     * @throws IllegalArgumentException if the status is {@link AccessStatus#OK}
+     * @since 1.1
+     */
+    public static ReadResult failed(AccessStatus status) {
+        if (status == AccessStatus.OK) {
+            throw new IllegalArgumentException("a failed read can't have the OK status");
+        }
+        return FAILURES[status.ordinal()];
+    }
+
+    /**
+     * @return the status of the read
+     * @since 1.1
+     */
+    public AccessStatus status() {
+        return status;
+    }
+
+    /**
+     * @return true if the read succeeded, false otherwise
+     * @since 1.1
+     */
+    public boolean isOk() {
+        return status == AccessStatus.OK;
+    }
+
+    /**
+     * @return handle to the value that was read or null if the read failed
+     * @since 1.1
+     */
+    public Handle value() {
+        return value;
+    }
+}
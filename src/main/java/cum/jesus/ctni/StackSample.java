@@ -0,0 +1,62 @@
+package cum.jesus.ctni;
+
+/**
+ * A snapshot of the call stack of a single vm thread, taken by {@link IEnvironment#SampleStacks()}.
+ *
+ * @author JesusTouchMe
+ * @see IEnvironment#SampleStacks()
+ * @see cum.jesus.ctni.util.SamplingProfiler
+ * @since 1.1
+ */
+public interface StackSample {
+    /**
+     * The Java thread running the vm thread that was sampled.
+     *
+     * @return sampled thread
+     * @since 1.1
+     */
+    Thread thread();
+
+    /**
+     * The frames on the call stack, starting with the outermost call. Ct and native frames appear in the order they were called,
+     * so a native calling back into ct shows up between the ct frames, e.g. {@code main.run, [native] forEach, main.visit}. <br>
+     * Never null, but empty if the thread wasn't running anything.
+     *
+     * @return the frames of the stack
+     * @since 1.1
+     */
+    Frame[] frames();
+
+    /**
+     * Whether a native function was running when the sample was taken, meaning the innermost frame is native.
+     *
+     * @return true if the thread was in a native function, false if it was executing bytecode or idle
+     * @since 1.1
+     */
+    default boolean isInNative() {
+        Frame[] frames = frames();
+        return frames.length > 0 && frames[frames.length - 1].isNative();
+    }
+
+    /**
+     * A single frame on a sampled call stack.
+     *
+     * @since 1.1
+     */
+    interface Frame {
+        /**
+         * For ct frames, the function in the form "module.function".
+         * For native frames, the name the native function was registered with in {@link INativeLoader#injectMethods(java.util.Map)}.
+         *
+         * @return name of the frame
+         * @since 1.1
+         */
+        String name();
+
+        /**
+         * @return true if this is a native function, false if it's a ct function
+         * @since 1.1
+         */
+        boolean isNative();
+    }
+}
@@ -22,4 +22,18 @@ public final class SecurityException extends Exception {
     public SecurityException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    /**
+     * Constructs the exception with the option of not capturing a stack trace, which is most of the cost of creating an exception.
+     * Meant for hot paths that throw often and never look at the stack trace.
+     *
+     * @param message the detail message
+     * @param cause the cause, may be null
+     * @param enableSuppression whether suppression is enabled
+     * @param writableStackTrace whether the stack trace should be captured
+     * @since 1.1
+     */
+    public SecurityException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
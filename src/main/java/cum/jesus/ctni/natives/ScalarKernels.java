@@ -0,0 +1,55 @@
+package cum.jesus.ctni.natives;
+
+/**
+ * Plain Java implementations of the bulk numeric kernels, used when the Vector API isn't available.
+ * Also serves as the fallback for the tails of arrays that don't fill a whole vector.
+ *
+ * @author JesusTouchMe
+ * @since 1.1
+ */
+class ScalarKernels {
+    long sum(int[] a, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    long dot(int[] a, int[] b, int from, int to) {
+        long dot = 0;
+        for (int i = from; i < to; i++) {
+            dot += (long) a[i] * b[i];
+        }
+        return dot;
+    }
+
+    /**
+     * Folds the range into minMax, where minMax[0] is the running minimum and minMax[1] the running maximum.
+     */
+    void minMax(int[] a, int from, int to, int[] minMax) {
+        int min = minMax[0];
+        int max = minMax[1];
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, a[i]);
+            max = Math.max(max, a[i]);
+        }
+        minMax[0] = min;
+        minMax[1] = max;
+    }
+
+    void scale(int[] a, int from, int to, int factor) {
+        for (int i = from; i < to; i++) {
+            a[i] *= factor;
+        }
+    }
+
+    void histogram(int[] a, int from, int to, int min, int width, int[] buckets) {
+        for (int i = from; i < to; i++) {
+            long bucket = ((long) a[i] - min) / width;
+            if (a[i] >= min && bucket < buckets.length) {
+                buckets[(int) bucket]++;
+            }
+        }
+    }
+}
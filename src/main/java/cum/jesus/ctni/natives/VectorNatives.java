@@ -0,0 +1,195 @@
+package cum.jesus.ctni.natives;
+
+import cum.jesus.ctni.Args;
+import cum.jesus.ctni.Handle;
+import cum.jesus.ctni.IEnvironment;
+import cum.jesus.ctni.INativeLoader;
+import cum.jesus.ctni.MemoryView;
+import cum.jesus.ctni.NativeFunction;
+import cum.jesus.ctni.exception.BadHandleException;
+import cum.jesus.ctni.exception.SecurityException;
+import cum.jesus.ctni.util.FunctionUtils;
+
+import java.util.Map;
+
+/**
+ * Standard library of bulk numeric natives operating on heap allocations of ints.
+ * The values are copied out of the heap in chunks through a {@link MemoryView} and processed with the Vector API when the jdk.incubator.vector module
+ * is available to the vm (e.g. started with {@code --add-modules jdk.incubator.vector}), otherwise with plain loops.
+ * <br><br>
+ * The natives, written as their ct declarations:
+ * <ul>
+ *     <li>{@code native func<long> vec_sum(ptr a, int len)} - sum of a[0..len)</li>
+ *     <li>{@code native func<long> vec_dot(ptr a, ptr b, int len)} - dot product of a[0..len) and b[0..len)</li>
+ *     <li>{@code native func<ptr> vec_minmax(ptr a, int len)} - new allocation of {min, max}, which is {int max, int min} if len is 0</li>
+ *     <li>{@code native func<ptr> vec_scale(ptr a, int len, int factor)} - multiplies a[0..len) by factor in place and returns a</li>
+ *     <li>{@code native func<ptr> vec_hist(ptr a, int len, int min, int width, int buckets)} - new allocation of buckets counts,
+ *     where a value v goes in bucket (v - min) / width and values outside all buckets are ignored</li>
+ * </ul>
+ * Bad handles, ranges outside the allocations and invalid arguments fail with an {@link IllegalArgumentException}.
+ * <br><br>
+ * Libraries wanting these natives can forward to this loader from their own: {@code new VectorNatives().injectMethods(functionMap)}.
+ *
+ * @author JesusTouchMe
+ * @since 1.1
+ */
+public final class VectorNatives implements INativeLoader {
+    private static final int CHUNK = 8192;
+    private static final String VECTOR_KERNELS = "cum.jesus.ctni.natives.VectorKernels";
+    private static final ScalarKernels KERNELS = selectKernels();
+
+    @Override
+    public void injectMethods(Map<String, NativeFunction> functionMap) {
+        functionMap.put("vec_sum", bulk("vec_sum", 2, VectorNatives::sum));
+        functionMap.put("vec_dot", bulk("vec_dot", 3, VectorNatives::dot));
+        functionMap.put("vec_minmax", bulk("vec_minmax", 2, VectorNatives::minMax));
+        functionMap.put("vec_scale", bulk("vec_scale", 3, VectorNatives::scale));
+        functionMap.put("vec_hist", bulk("vec_hist", 5, VectorNatives::histogram));
+    }
+
+    /**
+     * Whether the natives are running on the Vector API or the plain fallback.
+     *
+     * @return true if the Vector API is used, false otherwise
+     * @since 1.1
+     */
+    public static boolean isVectorized() {
+        return KERNELS.getClass() != ScalarKernels.class;
+    }
+
+    private static Handle sum(IEnvironment env, Args args) throws BadHandleException, SecurityException {
+        int len = length(args, 1);
+        MemoryView a = env.View(args.getHandle(0), 0, len, MemoryView.Access.READ);
+        int[] chunk = new int[Math.min(len, CHUNK)];
+
+        long sum = 0;
+        for (int off = 0; off < len; off += CHUNK) {
+            int n = Math.min(CHUNK, len - off);
+            a.getInts(off, chunk, 0, n);
+            sum += KERNELS.sum(chunk, 0, n);
+        }
+        return env.NewLong(sum);
+    }
+
+    private static Handle dot(IEnvironment env, Args args) throws BadHandleException, SecurityException {
+        int len = length(args, 2);
+        MemoryView a = env.View(args.getHandle(0), 0, len, MemoryView.Access.READ);
+        MemoryView b = env.View(args.getHandle(1), 0, len, MemoryView.Access.READ);
+        int[] chunkA = new int[Math.min(len, CHUNK)];
+        int[] chunkB = new int[chunkA.length];
+
+        long dot = 0;
+        for (int off = 0; off < len; off += CHUNK) {
+            int n = Math.min(CHUNK, len - off);
+            a.getInts(off, chunkA, 0, n);
+            b.getInts(off, chunkB, 0, n);
+            dot += KERNELS.dot(chunkA, chunkB, 0, n);
+        }
+        return env.NewLong(dot);
+    }
+
+    private static Handle minMax(IEnvironment env, Args args) throws BadHandleException, SecurityException {
+        int len = length(args, 1);
+        MemoryView a = env.View(args.getHandle(0), 0, len, MemoryView.Access.READ);
+        int[] chunk = new int[Math.min(len, CHUNK)];
+
+        int[] minMax = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int off = 0; off < len; off += CHUNK) {
+            int n = Math.min(CHUNK, len - off);
+            a.getInts(off, chunk, 0, n);
+            KERNELS.minMax(chunk, 0, n, minMax);
+        }
+        return newInts(env, minMax);
+    }
+
+    private static Handle scale(IEnvironment env, Args args) throws BadHandleException, SecurityException {
+        int len = length(args, 1);
+        int factor = args.getInt(2);
+        Handle ptr = args.getHandle(0);
+        MemoryView a = env.View(ptr, 0, len, MemoryView.Access.READ_WRITE);
+        int[] chunk = new int[Math.min(len, CHUNK)];
+
+        for (int off = 0; off < len; off += CHUNK) {
+            int n = Math.min(CHUNK, len - off);
+            a.getInts(off, chunk, 0, n);
+            KERNELS.scale(chunk, 0, n, factor);
+            a.setInts(off, chunk, 0, n);
+        }
+        return ptr;
+    }
+
+    private static Handle histogram(IEnvironment env, Args args) throws BadHandleException, SecurityException {
+        int len = length(args, 1);
+        int min = args.getInt(2);
+        int width = args.getInt(3);
+        int bucketCount = args.getInt(4);
+        if (width <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("width and buckets must be positive");
+        }
+
+        MemoryView a = env.View(args.getHandle(0), 0, len, MemoryView.Access.READ);
+        int[] chunk = new int[Math.min(len, CHUNK)];
+
+        int[] buckets = new int[bucketCount];
+        for (int off = 0; off < len; off += CHUNK) {
+            int n = Math.min(CHUNK, len - off);
+            a.getInts(off, chunk, 0, n);
+            KERNELS.histogram(chunk, 0, n, min, width, buckets);
+        }
+        return newInts(env, buckets);
+    }
+
+    private static int length(Args args, int index) throws BadHandleException {
+        int len = args.getInt(index);
+        if (len < 0) {
+            throw new IllegalArgumentException("negative length " + len);
+        }
+        return len;
+    }
+
+    private static Handle newInts(IEnvironment env, int[] values) throws BadHandleException, SecurityException {
+        Handle ptr = env.Alloc(values.length);
+        if (ptr == null) {
+            throw new OutOfMemoryError("ct heap exhausted");
+        }
+
+        env.View(ptr, 0, values.length, MemoryView.Access.WRITE).setInts(0, values, 0, values.length);
+        return ptr;
+    }
+
+    private static NativeFunction bulk(String name, int argc, Body body) {
+        return FunctionUtils.createLazyNative(argc, (env, args) -> {
+            try {
+                return body.call(env, args);
+            } catch (BadHandleException | SecurityException e) {
+                throw new IllegalArgumentException(name + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private static ScalarKernels selectKernels() {
+        ScalarKernels kernels = vectorKernels();
+        return kernels != null ? kernels : new ScalarKernels();
+    }
+
+    /**
+     * Loads the Vector API kernels, which are compiled separately (the vector source set) so only they need the incubator module.
+     * Returns null if the module isn't available to the vm.
+     */
+    static ScalarKernels vectorKernels() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+
+        try {
+            return (ScalarKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        Handle call(IEnvironment env, Args args) throws BadHandleException, SecurityException;
+    }
+}
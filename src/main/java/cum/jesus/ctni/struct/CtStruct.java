@@ -0,0 +1,27 @@
+package cum.jesus.ctni.struct;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a Java record as having a ct heap layout. At compile time a {@link StructCodec} named after the record with a "Codec" suffix
+ * is generated in the same package, e.g. {@code record Point(int x, int y)} gets {@code PointCodec.INSTANCE}. <br>
+ * Nested records get the names of their enclosing classes as a prefix, e.g. {@code Shapes.Point} gets {@code Shapes_PointCodec}.
+ * <br><br>
+ * Every record component takes up one value on the heap in declaration order. Supported component types are
+ * {@code byte}, {@code short}, {@code int}, {@code long}, {@link String}, {@link cum.jesus.ctni.Handle} and other {@code @CtStruct} records,
+ * which are laid out inline.
+ *
+ * @author JesusTouchMe
+ * @see StructCodec
+ * @see Structs
+ * @since 1.1
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface CtStruct {
+}
@@ -0,0 +1,251 @@
+package cum.jesus.ctni.struct;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor generating a {@link StructCodec} for every {@link CtStruct} record.
+ * This is picked up automatically by javac when the library is on the annotation processor path, there's no need to use it directly.
+ *
+ * @author JesusTouchMe
+ * @see CtStruct
+ * @since 1.1
+ */
+@SupportedAnnotationTypes("cum.jesus.ctni.struct.CtStruct")
+public final class CtStructProcessor extends AbstractProcessor {
+    private static final String HANDLE = "cum.jesus.ctni.Handle";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(CtStruct.class)) {
+            if (element.getKind() != ElementKind.RECORD) {
+                error(element, "@CtStruct can only be used on records");
+                continue;
+            }
+
+            TypeElement record = (TypeElement) element;
+            if (!record.getTypeParameters().isEmpty()) {
+                error(record, "@CtStruct records can't be generic");
+                continue;
+            }
+
+            if (!isVisibleToPackage(record)) {
+                error(record, "@CtStruct records can't be private or nested in a private class, as their codec is generated next to them");
+                continue;
+            }
+
+            if (validate(record)) {
+                generate(record);
+            }
+        }
+        return true;
+    }
+
+    private boolean validate(TypeElement record) {
+        boolean valid = true;
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            TypeMirror type = component.asType();
+            if (!isPrimitive(type) && !isClass(type, "java.lang.String") && !isClass(type, HANDLE) && structOf(type) == null) {
+                error(component, "unsupported @CtStruct component type " + type);
+                valid = false;
+            }
+        }
+
+        if (valid && isRecursive(record, new ArrayDeque<>())) {
+            error(record, "@CtStruct records can't contain themselves");
+            valid = false;
+        }
+        return valid;
+    }
+
+    /**
+     * Whether the generated codec, which is a top level class in the same package, can access the record.
+     */
+    private static boolean isVisibleToPackage(TypeElement record) {
+        for (Element element = record; element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRecursive(TypeElement record, Deque<TypeElement> path) {
+        if (path.contains(record)) {
+            return true;
+        }
+
+        path.push(record);
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            TypeElement struct = structOf(component.asType());
+            if (struct != null && isRecursive(struct, path)) {
+                return true;
+            }
+        }
+        path.pop();
+        return false;
+    }
+
+    private void generate(TypeElement record) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(record).getQualifiedName().toString();
+        String codecName = codecName(record);
+        String recordName = record.getQualifiedName().toString();
+        String qualifiedCodecName = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedCodecName, record).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+
+            out.println("/**");
+            out.println(" * Generated {@link cum.jesus.ctni.struct.StructCodec} for {@link " + recordName + "}.");
+            out.println(" */");
+            out.println("public final class " + codecName + " implements cum.jesus.ctni.struct.StructCodec<" + recordName + "> {");
+            out.println("    public static final " + codecName + " INSTANCE = new " + codecName + "();");
+            out.println();
+            out.println("    public static final int SLOTS = " + slots(record) + ";");
+            out.println();
+            out.println("    private " + codecName + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int slots() {");
+            out.println("        return SLOTS;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void encode(" + recordName + " value, Object[] dst, int offset) {");
+            int slot = 0;
+            for (RecordComponentElement component : record.getRecordComponents()) {
+                String accessor = "value." + component.getSimpleName() + "()";
+                TypeElement struct = structOf(component.asType());
+                if (struct != null) {
+                    out.println("        " + qualifiedCodecName(struct) + ".INSTANCE.encode(" + accessor + ", dst, offset + " + slot + ");");
+                    slot += slots(struct);
+                } else {
+                    out.println("        dst[offset + " + slot + "] = " + accessor + ";");
+                    slot++;
+                }
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + recordName + " decode(Object[] src, int offset) {");
+            out.println("        return new " + recordName + "(");
+            slot = 0;
+            List<? extends RecordComponentElement> components = record.getRecordComponents();
+            for (int i = 0; i < components.size(); i++) {
+                TypeMirror type = components.get(i).asType();
+                TypeElement struct = structOf(type);
+                String expression;
+                if (struct != null) {
+                    expression = qualifiedCodecName(struct) + ".INSTANCE.decode(src, offset + " + slot + ")";
+                    slot += slots(struct);
+                } else {
+                    String value = "src[offset + " + slot + "]";
+                    if (isPrimitive(type)) {
+                        expression = "((Number) " + value + ")." + unboxMethod(type.getKind()) + "()";
+                    } else {
+                        expression = "(" + type + ") " + value;
+                    }
+                    slot++;
+                }
+                out.println("                " + expression + (i + 1 < components.size() ? "," : ""));
+            }
+            out.println("        );");
+            out.println("    }");
+            out.println("}");
+        } catch (IOException e) {
+            error(record, "failed to generate codec: " + e.getMessage());
+        }
+    }
+
+    private int slots(TypeElement record) {
+        int slots = 0;
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            TypeElement struct = structOf(component.asType());
+            slots += struct != null ? slots(struct) : 1;
+        }
+        return slots;
+    }
+
+    private String codecName(TypeElement record) {
+        StringBuilder name = new StringBuilder(record.getSimpleName());
+        Element enclosing = record.getEnclosingElement();
+        while (!(enclosing instanceof PackageElement)) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append("Codec").toString();
+    }
+
+    private String qualifiedCodecName(TypeElement record) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(record).getQualifiedName().toString();
+        return packageName.isEmpty() ? codecName(record) : packageName + "." + codecName(record);
+    }
+
+    private TypeElement structOf(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        Element element = ((DeclaredType) type).asElement();
+        if (element.getKind() != ElementKind.RECORD || element.getAnnotation(CtStruct.class) == null) {
+            return null;
+        }
+        return (TypeElement) element;
+    }
+
+    private static boolean isPrimitive(TypeMirror type) {
+        TypeKind kind = type.getKind();
+        return kind == TypeKind.BYTE || kind == TypeKind.SHORT || kind == TypeKind.INT || kind == TypeKind.LONG;
+    }
+
+    // literal names rather than TypeKind.name().toLowerCase(), which depends on the locale (dotless i in Turkish)
+    private static String unboxMethod(TypeKind kind) {
+        switch (kind) {
+            case BYTE:
+                return "byteValue";
+            case SHORT:
+                return "shortValue";
+            case INT:
+                return "intValue";
+            case LONG:
+                return "longValue";
+            default:
+                throw new IllegalArgumentException("not a struct primitive: " + kind);
+        }
+    }
+
+    private static boolean isClass(TypeMirror type, String name) {
+        return type.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(name);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,46 @@
+package cum.jesus.ctni.struct;
+
+/**
+ * Converts a Java record to and from the flat array of Java type values making up its ct heap layout.
+ * Implementations are generated for every {@link CtStruct} record and should not be written by hand.
+ * <br><br>
+ * The arrays used by codecs are in the same format as {@link cum.jesus.ctni.IEnvironment#ReadValues(cum.jesus.ctni.Handle, int, int)}
+ * and {@link cum.jesus.ctni.IEnvironment#WriteValues(cum.jesus.ctni.Handle, int, Object[])}, which is how {@link Structs} moves a whole struct
+ * (or array of structs) in a single vm call.
+ *
+ * @param <T> the record type
+ * @author JesusTouchMe
+ * @see CtStruct
+ * @see Structs
+ * @since 1.1
+ */
+public interface StructCodec<T> {
+    /**
+     * Amount of heap values a single struct takes up.
+     *
+     * @return struct size in values
+     * @since 1.1
+     */
+    int slots();
+
+    /**
+     * Writes the components of a record into an array, starting at an offset.
+     *
+     * @param value the record to encode
+     * @param dst the array to write to, must have room for {@link #slots()} values after offset
+     * @param offset index in dst of the first component
+     * @since 1.1
+     */
+    void encode(T value, Object[] dst, int offset);
+
+    /**
+     * Constructs a record from the values in an array, starting at an offset.
+     *
+     * @param src the array to read from
+     * @param offset index in src of the first component
+     * @return the decoded record
+     * @throws ClassCastException if a value doesn't match the type of its component
+     * @since 1.1
+     */
+    T decode(Object[] src, int offset);
+}
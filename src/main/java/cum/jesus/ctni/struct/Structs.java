@@ -0,0 +1,158 @@
+package cum.jesus.ctni.struct;
+
+import cum.jesus.ctni.Handle;
+import cum.jesus.ctni.IEnvironment;
+import cum.jesus.ctni.exception.BadHandleException;
+import cum.jesus.ctni.exception.SecurityException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class for moving {@link CtStruct} records between Java and the ct heap.
+ * Every function here does exactly one bulk read or write in the vm regardless of how many components or elements are moved.
+ * Arrays of structs are laid out contiguously, meaning element i starts at {@code offset + i * codec.slots()}.
+ *
+ * @author JesusTouchMe
+ * @see StructCodec
+ * @see IEnvironment#ReadValues(Handle, int, int)
+ * @see IEnvironment#WriteValues(Handle, int, Object[])
+ * @since 1.1
+ */
+public final class Structs {
+    /**
+     * Allocates room for a single struct on the heap and writes it there.
+     *
+     * @param <T> the record type
+     * @param env environment to allocate in
+     * @param codec codec of the struct
+     * @param value the struct to write
+     * @return handle to the new allocation or null if the allocation failed
+     * @throws BadHandleException if the vm rejects the new allocation, in which case it is freed again
+     * @throws SecurityException if the vm rejects the write, in which case the allocation is freed again
+     * @since 1.1
+     */
+    public static <T> Handle alloc(IEnvironment env, StructCodec<T> codec, T value) throws BadHandleException, SecurityException {
+        Handle ptr = env.Alloc(codec.slots());
+        if (ptr == null) {
+            return null;
+        }
+
+        try {
+            write(env, ptr, 0, codec, value);
+        } catch (BadHandleException | SecurityException | RuntimeException e) {
+            env.Free(ptr);
+            throw e;
+        }
+        return ptr;
+    }
+
+    /**
+     * Allocates room for an array of structs on the heap and writes them there contiguously.
+     *
+     * @param <T> the record type
+     * @param env environment to allocate in
+     * @param codec codec of the struct
+     * @param values the structs to write
+     * @return handle to the new allocation or null if the allocation failed
+     * @throws BadHandleException if the vm rejects the new allocation, in which case it is freed again
+     * @throws SecurityException if the vm rejects the write, in which case the allocation is freed again
+     * @since 1.1
+     */
+    public static <T> Handle allocArray(IEnvironment env, StructCodec<T> codec, List<? extends T> values) throws BadHandleException, SecurityException {
+        Handle ptr = env.Alloc(codec.slots() * values.size());
+        if (ptr == null) {
+            return null;
+        }
+
+        try {
+            writeArray(env, ptr, 0, codec, values);
+        } catch (BadHandleException | SecurityException | RuntimeException e) {
+            env.Free(ptr);
+            throw e;
+        }
+        return ptr;
+    }
+
+    /**
+     * Writes a single struct to memory at an offset.
+     *
+     * @param <T> the record type
+     * @param env environment the memory belongs to
+     * @param ptr handle to heap allocation
+     * @param offset offset at ptr to write the struct to
+     * @param codec codec of the struct
+     * @param value the struct to write
+     * @throws BadHandleException if the provided ptr handle is null or doesn't point to a memory allocation
+     * @throws SecurityException if the struct doesn't fit or the memory is write-protected
+     * @since 1.1
+     */
+    public static <T> void write(IEnvironment env, Handle ptr, int offset, StructCodec<T> codec, T value) throws BadHandleException, SecurityException {
+        Object[] values = new Object[codec.slots()];
+        codec.encode(value, values, 0);
+        env.WriteValues(ptr, offset, values);
+    }
+
+    /**
+     * Writes an array of structs contiguously to memory at an offset.
+     *
+     * @param <T> the record type
+     * @param env environment the memory belongs to
+     * @param ptr handle to heap allocation
+     * @param offset offset at ptr to write the first struct to
+     * @param codec codec of the struct
+     * @param values the structs to write
+     * @throws BadHandleException if the provided ptr handle is null or doesn't point to a memory allocation
+     * @throws SecurityException if the structs don't fit or the memory is write-protected
+     * @since 1.1
+     */
+    public static <T> void writeArray(IEnvironment env, Handle ptr, int offset, StructCodec<T> codec, List<? extends T> values) throws BadHandleException, SecurityException {
+        int slots = codec.slots();
+        Object[] flat = new Object[slots * values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            codec.encode(values.get(i), flat, i * slots);
+        }
+        env.WriteValues(ptr, offset, flat);
+    }
+
+    /**
+     * Reads a single struct from memory at an offset.
+     *
+     * @param <T> the record type
+     * @param env environment the memory belongs to
+     * @param ptr handle to heap allocation
+     * @param offset offset at ptr of the struct
+     * @param codec codec of the struct
+     * @return the decoded struct
+     * @throws BadHandleException if the provided ptr handle is null or doesn't point to a memory allocation
+     * @throws SecurityException if the struct is outside the allocation or the memory is read-protected
+     * @since 1.1
+     */
+    public static <T> T read(IEnvironment env, Handle ptr, int offset, StructCodec<T> codec) throws BadHandleException, SecurityException {
+        return codec.decode(env.ReadValues(ptr, offset, codec.slots()), 0);
+    }
+
+    /**
+     * Reads an array of contiguous structs from memory at an offset.
+     *
+     * @param <T> the record type
+     * @param env environment the memory belongs to
+     * @param ptr handle to heap allocation
+     * @param offset offset at ptr of the first struct
+     * @param codec codec of the struct
+     * @param count amount of structs to read
+     * @return a new list of the decoded structs
+     * @throws BadHandleException if the provided ptr handle is null or doesn't point to a memory allocation
+     * @throws SecurityException if the structs are outside the allocation or the memory is read-protected
+     * @since 1.1
+     */
+    public static <T> List<T> readArray(IEnvironment env, Handle ptr, int offset, StructCodec<T> codec, int count) throws BadHandleException, SecurityException {
+        int slots = codec.slots();
+        Object[] flat = env.ReadValues(ptr, offset, slots * count);
+        List<T> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(codec.decode(flat, i * slots));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,318 @@
+package cum.jesus.ctni.util;
+
+import cum.jesus.ctni.AllocationListener;
+import cum.jesus.ctni.AllocationSite;
+import cum.jesus.ctni.Handle;
+import cum.jesus.ctni.IEnvironment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sampling heap profiler and leak detector, cheap enough to stay on in production.
+ * Only about one in every sample rate allocations is tracked, and the statistics are scaled up by the sample rate to estimate the real numbers. <br>
+ * For every call site, meaning the ct function together with the native function if the allocation was made by one, it tracks the estimated amount of
+ * live heap values. Sampled allocations which are still alive after a given age are reported as likely leaks.
+ * <br><br>
+ * Sizes are counted in heap values, the same unit {@link IEnvironment#Alloc(int)} takes.
+ *
+ * @author JesusTouchMe
+ * @see IEnvironment#SetAllocationSampler(int, AllocationListener)
+ * @since 1.1
+ */
+public final class AllocationProfiler implements AllocationListener {
+    private final int sampleRate;
+    private final HandleMap<Sample> live = new HandleMap<>();
+    private final Map<Site, AtomicLong> liveBySite = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a profiler which isn't attached to any vm yet.
+     *
+     * @param sampleRate the average amount of allocations per sample
+     * @throws IllegalArgumentException if sampleRate isn't positive
+     * @since 1.1
+     */
+    public AllocationProfiler(int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sample rate must be positive");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Starts profiling the allocations of a vm. This replaces any allocation sampler already registered with it, as a vm only has one.
+     *
+     * @param env environment of the vm to profile
+     * @since 1.1
+     */
+    public void attach(IEnvironment env) {
+        env.SetAllocationSampler(sampleRate, this);
+    }
+
+    /**
+     * Stops profiling the allocations of a vm. The collected statistics are kept. <br>
+     * There is no way to ask the vm which sampler is registered, so this turns off allocation sampling entirely,
+     * even if another listener was registered after this profiler was attached.
+     *
+     * @param env environment of the vm the profiler was attached to
+     * @since 1.1
+     */
+    public void detach(IEnvironment env) {
+        env.SetAllocationSampler(0, null);
+    }
+
+    @Override
+    public void onAlloc(Handle allocation, int size, AllocationSite site) {
+        Sample sample = new Sample(new Site(site.functionName(), site.nativeFrame()), size, System.nanoTime());
+        AtomicLong siteValues = liveBySite.computeIfAbsent(sample.site, k -> new AtomicLong());
+        siteValues.addAndGet(size);
+        synchronized (live) {
+            live.put(allocation, sample);
+        }
+    }
+
+    @Override
+    public void onReAlloc(Handle oldAllocation, Handle newAllocation, int newSize) {
+        Sample sample;
+        synchronized (live) {
+            sample = live.remove(oldAllocation);
+            if (sample == null) {
+                return;
+            }
+            live.put(newAllocation, new Sample(sample.site, newSize, sample.allocatedAt));
+        }
+        liveBySite.get(sample.site).addAndGet(newSize - sample.size);
+    }
+
+    @Override
+    public void onFree(Handle allocation) {
+        Sample sample;
+        synchronized (live) {
+            sample = live.remove(allocation);
+        }
+
+        if (sample != null) {
+            liveBySite.get(sample.site).addAndGet(-sample.size);
+        }
+    }
+
+    /**
+     * The estimated amount of live heap values per call site, largest first. Sites without live allocations are left out.
+     *
+     * @return a new list of call site statistics
+     * @since 1.1
+     */
+    public List<SiteStats> liveBySite() {
+        List<SiteStats> stats = new ArrayList<>();
+        for (Map.Entry<Site, AtomicLong> entry : liveBySite.entrySet()) {
+            long values = entry.getValue().get();
+            if (values > 0) {
+                stats.add(new SiteStats(entry.getKey(), values * sampleRate));
+            }
+        }
+        stats.sort(Comparator.comparingLong(SiteStats::liveValues).reversed());
+        return stats;
+    }
+
+    /**
+     * Finds sampled allocations which have been alive for longer than a threshold and are likely to be leaks, oldest first.
+     *
+     * @param olderThan the minimum age of an allocation to be reported
+     * @return a new list of the likely leaks
+     * @since 1.1
+     */
+    public List<Leak> findLeaks(Duration olderThan) {
+        long now = System.nanoTime();
+        long threshold = olderThan.toNanos();
+        List<Leak> leaks = new ArrayList<>();
+        synchronized (live) {
+            live.forEachValue(sample -> {
+                long age = now - sample.allocatedAt;
+                if (age > threshold) {
+                    leaks.add(new Leak(sample.site, sample.size, Duration.ofNanos(age)));
+                }
+            });
+        }
+        leaks.sort(Comparator.comparing(Leak::age).reversed());
+        return leaks;
+    }
+
+    /**
+     * Formats the live values per call site and the likely leaks as human-readable text.
+     *
+     * @param leakAge the minimum age of an allocation to be reported as a leak
+     * @return the formatted report
+     * @since 1.1
+     */
+    public String dump(Duration leakAge) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("live heap values by site (estimated, 1 in ").append(sampleRate).append(" sampled):\n");
+        for (SiteStats stats : liveBySite()) {
+            builder.append("  ").append(stats.liveValues()).append(' ').append(stats.site()).append('\n');
+        }
+
+        builder.append("allocations alive for more than ").append(leakAge).append(":\n");
+        for (Leak leak : findLeaks(leakAge)) {
+            builder.append("  ").append(leak.size()).append(" values, ").append(leak.age()).append(' ').append(leak.site()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Periodically passes a {@link #dump(Duration)} to a consumer, e.g. a logger.
+     *
+     * @param executor the executor to schedule the dumps on
+     * @param period time between dumps
+     * @param leakAge the minimum age of an allocation to be reported as a leak
+     * @param out where to pass the dumps to
+     * @return the scheduled task, which can be cancelled to stop dumping
+     * @since 1.1
+     */
+    public ScheduledFuture<?> dumpPeriodically(ScheduledExecutorService executor, Duration period, Duration leakAge, Consumer<String> out) {
+        long nanos = period.toNanos();
+        return executor.scheduleAtFixedRate(() -> out.accept(dump(leakAge)), nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A call site which allocates on the heap.
+     *
+     * @since 1.1
+     */
+    public static final class Site {
+        private final String function;
+        private final String nativeFrame;
+
+        private Site(String function, String nativeFrame) {
+            this.function = function;
+            this.nativeFrame = nativeFrame;
+        }
+
+        /**
+         * @return the ct function in the form "module.function"
+         * @since 1.1
+         */
+        public String function() {
+            return function;
+        }
+
+        /**
+         * @return the native function which made the allocations or null if they were made by bytecode
+         * @since 1.1
+         */
+        public String nativeFrame() {
+            return nativeFrame;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Site)) return false;
+            Site site = (Site) o;
+            return function.equals(site.function) && Objects.equals(nativeFrame, site.nativeFrame);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * function.hashCode() + Objects.hashCode(nativeFrame);
+        }
+
+        @Override
+        public String toString() {
+            return nativeFrame != null ? function + ";[native] " + nativeFrame : function;
+        }
+    }
+
+    /**
+     * The estimated live heap values of a call site.
+     *
+     * @since 1.1
+     */
+    public static final class SiteStats {
+        private final Site site;
+        private final long liveValues;
+
+        private SiteStats(Site site, long liveValues) {
+            this.site = site;
+            this.liveValues = liveValues;
+        }
+
+        /**
+         * @return the call site
+         * @since 1.1
+         */
+        public Site site() {
+            return site;
+        }
+
+        /**
+         * @return estimated amount of heap values allocated by the site which are still alive
+         * @since 1.1
+         */
+        public long liveValues() {
+            return liveValues;
+        }
+    }
+
+    /**
+     * A sampled allocation which has been alive for longer than expected.
+     *
+     * @since 1.1
+     */
+    public static final class Leak {
+        private final Site site;
+        private final int size;
+        private final Duration age;
+
+        private Leak(Site site, int size, Duration age) {
+            this.site = site;
+            this.size = size;
+            this.age = age;
+        }
+
+        /**
+         * @return the call site which made the allocation
+         * @since 1.1
+         */
+        public Site site() {
+            return site;
+        }
+
+        /**
+         * @return the amount of values in the allocation
+         * @since 1.1
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return how long the allocation has been alive
+         * @since 1.1
+         */
+        public Duration age() {
+            return age;
+        }
+    }
+
+    private static final class Sample {
+        private final Site site;
+        private final int size;
+        private final long allocatedAt;
+
+        private Sample(Site site, int size, long allocatedAt) {
+            this.site = site;
+            this.size = size;
+            this.allocatedAt = allocatedAt;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cum.jesus.ctni.util;
 
+import cum.jesus.ctni.Args;
 import cum.jesus.ctni.Handle;
 import cum.jesus.ctni.IEnvironment;
 import cum.jesus.ctni.NativeFunction;
@@ -53,6 +54,118 @@ public final class FunctionUtils {
         };
     }
 
+    /**
+     * Constructs a new {@link NativeFunction} which receives its arguments as an {@link Args} view instead of an array of Java types.
+     * If the function is ever called through {@link NativeFunction#call(IEnvironment, Object[])}, the array is wrapped in a view so it still works.
+     *
+     * @param argc amount of args the function requires
+     * @param function the function which will be called by the native function
+     * @return the newly made native function
+     * @see NativeFunction#call(IEnvironment, Args)
+     * @see Args
+     * @since 1.1
+     */
+    public static NativeFunction createLazyNative(int argc, BiFunction<IEnvironment, Args, Handle> function) {
+        return new NativeFunction() {
+            @Override
+            public int argc() {
+                return argc;
+            }
+
+            @Override
+            public Handle call(IEnvironment env, Object[] args) {
+                return function.apply(env, new ArrayArgs(env, args));
+            }
+
+            @Override
+            public Handle call(IEnvironment env, Args args) {
+                return function.apply(env, args);
+            }
+        };
+    }
+
+    /**
+     * {@link Args} view over arguments which have already been converted to Java types.
+     */
+    private static final class ArrayArgs implements Args {
+        private final IEnvironment env;
+        private final Object[] args;
+
+        private ArrayArgs(IEnvironment env, Object[] args) {
+            this.env = env;
+            this.args = args;
+        }
+
+        @Override
+        public int size() {
+            return args.length;
+        }
+
+        @Override
+        public Kind kind(int index) {
+            Object arg = args[index];
+            if (arg instanceof Byte) return Kind.BYTE;
+            if (arg instanceof Short) return Kind.SHORT;
+            if (arg instanceof Integer) return Kind.INT;
+            if (arg instanceof Long) return Kind.LONG;
+            if (arg instanceof String) return Kind.STRING;
+            return Kind.HANDLE;
+        }
+
+        @Override
+        public byte getByte(int index) throws BadHandleException {
+            return number(index).byteValue();
+        }
+
+        @Override
+        public short getShort(int index) throws BadHandleException {
+            return number(index).shortValue();
+        }
+
+        @Override
+        public int getInt(int index) throws BadHandleException {
+            return number(index).intValue();
+        }
+
+        @Override
+        public long getLong(int index) throws BadHandleException {
+            return number(index).longValue();
+        }
+
+        @Override
+        public String getString(int index) throws BadHandleException {
+            Object arg = args[index];
+            if (!(arg instanceof String)) {
+                throw new BadHandleException("argument " + index + " is not a string");
+            }
+            return (String) arg;
+        }
+
+        @Override
+        public Handle getHandle(int index) {
+            Object arg = args[index];
+            if (arg instanceof Byte) return env.NewByte((Byte) arg);
+            if (arg instanceof Short) return env.NewShort((Short) arg);
+            if (arg instanceof Integer) return env.NewInt((Integer) arg);
+            if (arg instanceof Long) return env.NewLong((Long) arg);
+            if (arg instanceof String) return env.NewString((String) arg);
+            return (Handle) arg;
+        }
+
+        @Override
+        public Object[] toArray() {
+            return args.clone();
+        }
+
+        private Number number(int index) throws BadHandleException {
+            Object arg = args[index];
+            if (!(arg instanceof Byte || arg instanceof Short || arg instanceof Integer || arg instanceof Long)) {
+                throw new BadHandleException("argument " + index + " is not a number");
+            }
+            return (Number) arg;
+        }
+    }
+
     /**
      * Wrapper class for a function in the CTVM
      *
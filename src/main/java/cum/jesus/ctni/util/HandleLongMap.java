@@ -0,0 +1,296 @@
+package cum.jesus.ctni.util;
+
+import cum.jesus.ctni.Handle;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from {@link Handle}s to primitive longs, keyed directly on {@link Handle#id()} using open addressing.
+ * Neither keys nor values are ever boxed, which makes it suited for counters and offsets inside natives. <br>
+ * This class is not thread safe.
+ *
+ * @author JesusTouchMe
+ * @see Handle#id()
+ * @see HandleMap
+ * @since 1.1
+ */
+public final class HandleLongMap {
+    // id 0 marks a free slot, so the value of id 0 is kept on the side
+    private long[] keys;
+    private long[] values;
+    private boolean hasZero;
+    private long zeroValue;
+    private int size;
+    private int mask;
+
+    /**
+     * Constructs an empty map.
+     *
+     * @since 1.1
+     */
+    public HandleLongMap() {
+        this(0);
+    }
+
+    /**
+     * Constructs an empty map with room for an amount of entries without resizing.
+     *
+     * @param expectedSize amount of entries expected to be stored
+     * @since 1.1
+     */
+    public HandleLongMap(int expectedSize) {
+        allocate(HandleMap.tableSize(expectedSize));
+    }
+
+    /**
+     * @param handle the key
+     * @param defaultValue the value to return if nothing is stored for the handle
+     * @return the value stored for the handle or defaultValue
+     * @since 1.1
+     */
+    public long get(Handle handle, long defaultValue) {
+        return get(handle.id(), defaultValue);
+    }
+
+    /**
+     * @param id id of the key handle
+     * @param defaultValue the value to return if nothing is stored for the id
+     * @return the value stored for the id or defaultValue
+     * @since 1.1
+     */
+    public long get(long id, long defaultValue) {
+        if (id == 0) {
+            return hasZero ? zeroValue : defaultValue;
+        }
+
+        int slot = find(id);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    /**
+     * @param handle the key
+     * @return true if a value is stored for the handle, false otherwise
+     * @since 1.1
+     */
+    public boolean containsKey(Handle handle) {
+        long id = handle.id();
+        return id == 0 ? hasZero : find(id) >= 0;
+    }
+
+    /**
+     * Stores a value for a handle, replacing any value already stored for it.
+     *
+     * @param handle the key
+     * @param value the value to store
+     * @since 1.1
+     */
+    public void put(Handle handle, long value) {
+        put(handle.id(), value);
+    }
+
+    /**
+     * Stores a value for the id of a handle, replacing any value already stored for it.
+     *
+     * @param id id of the key handle
+     * @param value the value to store
+     * @since 1.1
+     */
+    public void put(long id, long value) {
+        if (id == 0) {
+            if (!hasZero) {
+                hasZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+
+        int slot = insert(id); // may rehash, so values has to be read afterwards
+        values[slot] = value;
+    }
+
+    /**
+     * Adds to the value stored for a handle, treating a missing value as 0.
+     *
+     * @param handle the key
+     * @param delta the amount to add
+     * @return the new value
+     * @since 1.1
+     */
+    public long addTo(Handle handle, long delta) {
+        return addTo(handle.id(), delta);
+    }
+
+    /**
+     * Adds to the value stored for the id of a handle, treating a missing value as 0.
+     *
+     * @param id id of the key handle
+     * @param delta the amount to add
+     * @return the new value
+     * @since 1.1
+     */
+    public long addTo(long id, long delta) {
+        if (id == 0) {
+            if (!hasZero) {
+                hasZero = true;
+                zeroValue = 0;
+                size++;
+            }
+            return zeroValue += delta;
+        }
+
+        int slot = insert(id);
+        return values[slot] += delta;
+    }
+
+    /**
+     * @param handle the key
+     * @return true if a value was removed, false if there was none
+     * @since 1.1
+     */
+    public boolean remove(Handle handle) {
+        return remove(handle.id());
+    }
+
+    /**
+     * @param id id of the key handle
+     * @return true if a value was removed, false if there was none
+     * @since 1.1
+     */
+    public boolean remove(long id) {
+        if (id == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+
+        int slot = find(id);
+        if (slot < 0) {
+            return false;
+        }
+
+        shiftBack(slot);
+        size--;
+        return true;
+    }
+
+    /**
+     * @return amount of entries in the map
+     * @since 1.1
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the map has no entries, false otherwise
+     * @since 1.1
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries from the map.
+     *
+     * @since 1.1
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    /**
+     * Spreads the bits of an id, as ids are often sequential or aligned (the murmur3 finalizer).
+     */
+    static int mix(long id) {
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        id *= 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return (int) id;
+    }
+
+    private int slot(long id) {
+        return mix(id) & mask;
+    }
+
+    private int find(long id) {
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            long key = keys[slot];
+            if (key == id) {
+                return slot;
+            }
+            if (key == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of a non-zero id, adding it with a value of 0 if it's missing.
+     */
+    private int insert(long id) {
+        int slot = slot(id);
+        while (keys[slot] != 0) {
+            if (keys[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = id;
+        values[slot] = 0;
+        if (++size > (mask + 1) / 2) {
+            rehash((mask + 1) * 2);
+            return find(id);
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the entry at a slot by moving later entries of the same probe chain back, so no tombstones are needed.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        for (int next = (free + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            // move the entry if its home slot isn't cyclically within (free, next]
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+}
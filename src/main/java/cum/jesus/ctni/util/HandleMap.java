@@ -0,0 +1,281 @@
+package cum.jesus.ctni.util;
+
+import cum.jesus.ctni.Handle;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Hash map from {@link Handle}s to objects, keyed directly on {@link Handle#id()} using open addressing.
+ * Unlike a {@link java.util.HashMap} it never boxes keys or allocates entries, which makes it suited for caches inside natives. <br>
+ * Null values are not allowed, as null is returned for missing keys. This class is not thread safe.
+ *
+ * @param <V> type of the values
+ * @author JesusTouchMe
+ * @see Handle#id()
+ * @see HandleLongMap
+ * @since 1.1
+ */
+public final class HandleMap<V> {
+    private static final int MIN_TABLE_SIZE = 16;
+
+    // id 0 marks a free slot, so the value of id 0 is kept on the side
+    private long[] keys;
+    private Object[] values;
+    private Object zeroValue;
+    private int size;
+    private int mask;
+
+    /**
+     * Constructs an empty map.
+     *
+     * @since 1.1
+     */
+    public HandleMap() {
+        this(0);
+    }
+
+    /**
+     * Constructs an empty map with room for an amount of entries without resizing.
+     *
+     * @param expectedSize amount of entries expected to be stored
+     * @since 1.1
+     */
+    public HandleMap(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    /**
+     * @param handle the key
+     * @return the value stored for the handle or null if there is none
+     * @since 1.1
+     */
+    public V get(Handle handle) {
+        return get(handle.id());
+    }
+
+    /**
+     * @param id id of the key handle
+     * @return the value stored for the id or null if there is none
+     * @since 1.1
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long id) {
+        if (id == 0) {
+            return (V) zeroValue;
+        }
+
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            long key = keys[slot];
+            if (key == id) {
+                return (V) values[slot];
+            }
+            if (key == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @param handle the key
+     * @return true if a value is stored for the handle, false otherwise
+     * @since 1.1
+     */
+    public boolean containsKey(Handle handle) {
+        return get(handle.id()) != null;
+    }
+
+    /**
+     * Stores a value for a handle, replacing any value already stored for it.
+     *
+     * @param handle the key
+     * @param value the value to store, not null
+     * @return the previously stored value or null if there was none
+     * @since 1.1
+     */
+    public V put(Handle handle, V value) {
+        return put(handle.id(), value);
+    }
+
+    /**
+     * Stores a value for the id of a handle, replacing any value already stored for it.
+     *
+     * @param id id of the key handle
+     * @param value the value to store, not null
+     * @return the previously stored value or null if there was none
+     * @since 1.1
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long id, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        if (id == 0) {
+            V old = (V) zeroValue;
+            zeroValue = value;
+            if (old == null) {
+                size++;
+            }
+            return old;
+        }
+
+        int slot = slot(id);
+        while (keys[slot] != 0) {
+            if (keys[slot] == id) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = id;
+        values[slot] = value;
+        if (++size > (mask + 1) / 2) {
+            rehash((mask + 1) * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @param handle the key
+     * @return the removed value or null if there was none
+     * @since 1.1
+     */
+    public V remove(Handle handle) {
+        return remove(handle.id());
+    }
+
+    /**
+     * @param id id of the key handle
+     * @return the removed value or null if there was none
+     * @since 1.1
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long id) {
+        if (id == 0) {
+            V old = (V) zeroValue;
+            if (old != null) {
+                zeroValue = null;
+                size--;
+            }
+            return old;
+        }
+
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            long key = keys[slot];
+            if (key == 0) {
+                return null;
+            }
+            if (key == id) {
+                V old = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return old;
+            }
+        }
+    }
+
+    /**
+     * Calls an action for every value in the map, in no particular order. The map must not be changed by the action.
+     *
+     * @param action the action to call
+     * @since 1.1
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        if (zeroValue != null) {
+            action.accept((V) zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                action.accept((V) values[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return amount of entries in the map
+     * @since 1.1
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the map has no entries, false otherwise
+     * @since 1.1
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries from the map.
+     *
+     * @since 1.1
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        zeroValue = null;
+        size = 0;
+    }
+
+    private int slot(long id) {
+        return HandleLongMap.mix(id) & mask;
+    }
+
+    /**
+     * Removes the entry at a slot by moving later entries of the same probe chain back, so no tombstones are needed.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        for (int next = (free + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            // move the entry if its home slot isn't cyclically within (free, next]
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = 0;
+        values[free] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Table size used by both maps: the smallest power of two which keeps expectedSize entries at most half full, and at least {@value #MIN_TABLE_SIZE}.
+     */
+    static int tableSize(int expectedSize) {
+        if (expectedSize < 0 || expectedSize > 1 << 29) {
+            throw new IllegalArgumentException("invalid size " + expectedSize);
+        }
+        return Integer.highestOneBit(Math.max(expectedSize * 2, MIN_TABLE_SIZE) - 1) << 1;
+    }
+}
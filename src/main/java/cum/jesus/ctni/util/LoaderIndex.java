@@ -0,0 +1,386 @@
+package cum.jesus.ctni.util;
+
+import cum.jesus.ctni.INativeLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent index of native library jars, used by library loaders to skip opening every jar at startup.
+ * For every jar it stores the size and modification time it had when it was last scanned, the "CT-Loader" class from its manifest
+ * and the names of the native functions the loader registered. A jar whose size and modification time are unchanged is never opened again. <br>
+ * Since the natives of each loader are known before it's loaded, a library loader can also defer loaders whose natives aren't referenced yet.
+ * <br><br>
+ * The index is stored as a compact binary file with a CRC32 over its contents.
+ * If the file is missing, corrupt, fails the checksum or is of another version, the index simply starts out empty.
+ * This class is not thread safe.
+ *
+ * @author JesusTouchMe
+ * @see INativeLoader
+ * @since 1.1
+ */
+public final class LoaderIndex {
+    private static final int MAGIC = 0x43544C49; // "CTLI"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16; // magic, version, crc of the payload
+
+    // smallest possible encoding of an entry: two empty strings, size, modification time and the natives count
+    private static final int MIN_ENTRY_BYTES = 2 + 8 + 8 + 2 + 4;
+    private static final String LOADER_ATTRIBUTE = "CT-Loader";
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+    private final Set<String> seen = new HashSet<>();
+    private final Timings timings = new Timings();
+    private boolean dirty;
+
+    private LoaderIndex(Path file, Map<String, Entry> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the index stored in a file. Never fails because of the contents of the file, a missing or invalid file gives an empty index.
+     *
+     * @param file the index file, doesn't have to exist
+     * @return the loaded index
+     * @throws IOException if the file exists but can't be read
+     * @since 1.1
+     */
+    public static LoaderIndex load(Path file) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Entry> entries = new HashMap<>();
+
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (bytes.length >= HEADER_BYTES && in.readInt() == MAGIC && in.readInt() == VERSION) {
+                long crc = in.readLong();
+                CRC32 actual = new CRC32();
+                actual.update(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+
+                if (crc == actual.getValue()) {
+                    int count = checkCount(in.readInt(), MIN_ENTRY_BYTES, in);
+                    for (int i = 0; i < count; i++) {
+                        Entry entry = Entry.read(in);
+                        entries.put(entry.path, entry);
+                    }
+
+                    if (in.available() != 0) {
+                        throw new EOFException("trailing bytes after the last entry");
+                    }
+                }
+            }
+        } catch (NoSuchFileException ignored) {
+        } catch (EOFException | UTFDataFormatException e) {
+            entries.clear(); // truncated or corrupt, rebuild from scratch
+        }
+
+        LoaderIndex index = new LoaderIndex(file, entries);
+        index.timings.loadNanos = System.nanoTime() - start;
+        return index;
+    }
+
+    /**
+     * Finds the loader of a library jar, only reading the jar manifest if the jar changed since it was last indexed.
+     *
+     * @param jar path to the library jar
+     * @return the entry of the jar or null if the jar has no "CT-Loader" manifest entry
+     * @throws IOException if the jar has to be scanned and can't be read
+     * @since 1.1
+     */
+    public Entry resolve(Path jar) throws IOException {
+        String path = jar.toAbsolutePath().normalize().toString();
+        BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        seen.add(path);
+
+        Entry entry = entries.get(path);
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            timings.hits++;
+            return entry.loaderClass.isEmpty() ? null : entry;
+        }
+
+        long start = System.nanoTime();
+        String loaderClass;
+        try (JarFile jarFile = new JarFile(jar.toFile(), false)) {
+            Manifest manifest = jarFile.getManifest();
+            loaderClass = manifest != null ? manifest.getMainAttributes().getValue(LOADER_ATTRIBUTE) : null;
+        }
+        timings.scanNanos += System.nanoTime() - start;
+        timings.misses++;
+
+        // jars without a loader are indexed too, so they aren't opened again either
+        entry = new Entry(path, size, lastModified, loaderClass != null ? loaderClass.trim() : "", null);
+        entries.put(path, entry);
+        dirty = true;
+        return entry.loaderClass.isEmpty() ? null : entry;
+    }
+
+    /**
+     * Records the natives a loader registered in {@link INativeLoader#injectMethods(Map)}, making them known without loading it next time.
+     *
+     * @param jar path to the library jar, must have been resolved first
+     * @param natives names of all the natives registered by the loader of the jar
+     * @throws IllegalArgumentException if the jar hasn't been resolved
+     * @since 1.1
+     */
+    public void recordNatives(Path jar, Collection<String> natives) {
+        String path = jar.toAbsolutePath().normalize().toString();
+        Entry entry = entries.get(path);
+        if (entry == null || !seen.contains(path)) {
+            throw new IllegalArgumentException("jar has not been resolved: " + jar);
+        }
+
+        List<String> names = Collections.unmodifiableList(new ArrayList<>(natives));
+        if (!names.equals(entry.natives)) {
+            entries.put(path, new Entry(path, entry.size, entry.lastModified, entry.loaderClass, names));
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the index back to its file if anything changed. Jars which weren't resolved since the index was loaded are dropped.
+     * The file is replaced atomically, so a crash while saving never leaves a broken index behind.
+     *
+     * @throws IOException if the index can't be written
+     * @since 1.1
+     */
+    public void save() throws IOException {
+        long start = System.nanoTime();
+        if (entries.keySet().retainAll(seen)) {
+            dirty = true;
+        }
+
+        if (dirty) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream payloadOut = new DataOutputStream(payload);
+            payloadOut.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                entry.write(payloadOut);
+            }
+
+            CRC32 crc = new CRC32();
+            byte[] bytes = payload.toByteArray();
+            crc.update(bytes);
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(crc.getValue());
+                out.write(bytes);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        }
+        timings.saveNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Checks a count read from the file against the bytes left, so a corrupt count can't make the index allocate huge arrays.
+     * Throws the same exception as running out of bytes, which is what reading that many elements would end in.
+     */
+    private static int checkCount(int count, int minBytes, DataInputStream in) throws IOException {
+        if (count < 0 || count > in.available() / minBytes) {
+            throw new EOFException("count " + count + " exceeds the remaining bytes");
+        }
+        return count;
+    }
+
+    /**
+     * The time spent in each phase of using this index so far.
+     *
+     * @return timings of this index
+     * @since 1.1
+     */
+    public Timings timings() {
+        return timings;
+    }
+
+    /**
+     * An indexed library jar.
+     *
+     * @since 1.1
+     */
+    public static final class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String loaderClass;
+        private final List<String> natives;
+
+        private Entry(String path, long size, long lastModified, String loaderClass, List<String> natives) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.loaderClass = loaderClass;
+            this.natives = natives;
+        }
+
+        /**
+         * @return absolute path of the jar
+         * @since 1.1
+         */
+        public String path() {
+            return path;
+        }
+
+        /**
+         * @return name of the {@link INativeLoader} class from the "CT-Loader" manifest entry
+         * @since 1.1
+         */
+        public String loaderClass() {
+            return loaderClass;
+        }
+
+        /**
+         * The natives registered by the loader the last time it was loaded.
+         *
+         * @return names of the natives or null if the loader hasn't been loaded since the jar last changed
+         * @since 1.1
+         */
+        public List<String> natives() {
+            return natives;
+        }
+
+        /**
+         * Checks whether the loader has to be loaded to provide any of the given natives.
+         * If the natives of the loader aren't known yet, this always returns true.
+         *
+         * @param referenced names of the natives referenced by the loaded modules
+         * @return false if the loader is known not to register any of the natives, true otherwise
+         * @since 1.1
+         */
+        public boolean providesAny(Collection<String> referenced) {
+            if (natives == null) {
+                return true;
+            }
+
+            for (String name : natives) {
+                if (referenced.contains(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeUTF(path);
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeUTF(loaderClass);
+            if (natives == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(natives.size());
+                for (String name : natives) {
+                    out.writeUTF(name);
+                }
+            }
+        }
+
+        private static Entry read(DataInputStream in) throws IOException {
+            String path = in.readUTF();
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            String loaderClass = in.readUTF();
+            int count = in.readInt();
+
+            List<String> natives = null;
+            if (count != -1) {
+                String[] names = new String[checkCount(count, 2, in)];
+                for (int i = 0; i < count; i++) {
+                    names[i] = in.readUTF();
+                }
+                natives = List.of(names);
+            }
+            return new Entry(path, size, lastModified, loaderClass, natives);
+        }
+    }
+
+    /**
+     * Time spent in each phase of library discovery, meant for diagnosing slow startups.
+     *
+     * @since 1.1
+     */
+    public static final class Timings {
+        private long loadNanos;
+        private long scanNanos;
+        private long saveNanos;
+        private int hits;
+        private int misses;
+
+        private Timings() {
+        }
+
+        /**
+         * @return nanoseconds spent reading the index file
+         * @since 1.1
+         */
+        public long loadNanos() {
+            return loadNanos;
+        }
+
+        /**
+         * @return nanoseconds spent opening jar manifests of new or changed jars
+         * @since 1.1
+         */
+        public long scanNanos() {
+            return scanNanos;
+        }
+
+        /**
+         * @return nanoseconds spent by the latest {@link LoaderIndex#save()}
+         * @since 1.1
+         */
+        public long saveNanos() {
+            return saveNanos;
+        }
+
+        /**
+         * @return amount of jars resolved from the index without being opened
+         * @since 1.1
+         */
+        public int hits() {
+            return hits;
+        }
+
+        /**
+         * @return amount of jars which had to be opened
+         * @since 1.1
+         */
+        public int misses() {
+            return misses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("load %.3fms, scan %.3fms (%d hits, %d misses), save %.3fms",
+                    loadNanos / 1e6, scanNanos / 1e6, hits, misses, saveNanos / 1e6);
+        }
+    }
+}
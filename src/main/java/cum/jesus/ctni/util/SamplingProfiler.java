@@ -0,0 +1,206 @@
+package cum.jesus.ctni.util;
+
+import cum.jesus.ctni.IEnvironment;
+import cum.jesus.ctni.StackSample;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Low overhead sampling profiler for the mixed ct and native call stack.
+ * While running, a daemon thread periodically samples the stack of every vm thread with {@link IEnvironment#SampleStacks()}
+ * and counts how often each distinct stack was seen. <br>
+ * The result is written in the collapsed stack format read by flame graph tools, one line per stack: {@code main.run;main.draw;[native] print 42}.
+ * Native frames are prefixed by "[native] " wherever they are on the stack, which splits the time spent in bytecode from the time spent in Java.
+ * A ct callback made by a native is therefore counted under that native, e.g. {@code main.run;[native] forEach;main.visit 7}.
+ *
+ * @author JesusTouchMe
+ * @see IEnvironment#SampleStacks()
+ * @see StackSample
+ * @since 1.1
+ */
+public final class SamplingProfiler {
+    private static final String NATIVE_PREFIX = "[native] ";
+
+    private final IEnvironment env;
+    private final long intervalNanos;
+    private final Map<String, AtomicLong> stacks = new ConcurrentHashMap<>();
+    private final AtomicLong bytecodeSamples = new AtomicLong();
+    private final AtomicLong nativeSamples = new AtomicLong();
+    private volatile Thread sampler;
+    private volatile Throwable failure;
+
+    /**
+     * Constructs a profiler which isn't running yet.
+     *
+     * @param env environment of the vm to profile
+     * @param interval time between samples
+     * @param unit unit of interval
+     * @since 1.1
+     */
+    public SamplingProfiler(IEnvironment env, long interval, TimeUnit unit) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+
+        this.env = env;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Starts sampling on a new daemon thread. Does nothing if the profiler is already running.
+     * Clears any {@link #failure()} from a previous run.
+     *
+     * @since 1.1
+     */
+    public synchronized void start() {
+        if (sampler != null) {
+            return;
+        }
+
+        failure = null;
+        sampler = new Thread(this::run, "ctni-sampling-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stops sampling and waits for the sampling thread to finish. The collected samples are kept.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @since 1.1
+     */
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = sampler;
+            if (thread == null) {
+                return;
+            }
+            sampler = null;
+        }
+
+        // joined outside the lock, as the sampling thread takes it when it dies
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    /**
+     * Whether the profiler is currently sampling. This turns false by itself if sampling fails.
+     *
+     * @return true if running, false otherwise
+     * @see #failure()
+     * @since 1.1
+     */
+    public boolean isRunning() {
+        return sampler != null;
+    }
+
+    /**
+     * The exception which stopped the latest run of the profiler, e.g. one thrown by {@link IEnvironment#SampleStacks()}.
+     * The exception is also passed on to the uncaught exception handler of the sampling thread.
+     *
+     * @return the exception that stopped sampling or null if sampling hasn't failed
+     * @since 1.1
+     */
+    public Throwable failure() {
+        return failure;
+    }
+
+    /**
+     * Discards all collected samples.
+     *
+     * @since 1.1
+     */
+    public void reset() {
+        stacks.clear();
+        bytecodeSamples.set(0);
+        nativeSamples.set(0);
+    }
+
+    /**
+     * @return amount of samples taken while bytecode was running
+     * @since 1.1
+     */
+    public long bytecodeSamples() {
+        return bytecodeSamples.get();
+    }
+
+    /**
+     * @return amount of samples taken while a native function was running
+     * @since 1.1
+     */
+    public long nativeSamples() {
+        return nativeSamples.get();
+    }
+
+    /**
+     * Writes all samples collected so far in the collapsed stack format. This may be called while the profiler is running.
+     *
+     * @param out where to write the stacks
+     * @throws IOException if writing fails
+     * @since 1.1
+     */
+    public void writeCollapsed(Writer out) throws IOException {
+        for (Map.Entry<String, AtomicLong> entry : stacks.entrySet()) {
+            out.write(entry.getKey());
+            out.write(' ');
+            out.write(Long.toString(entry.getValue().get()));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    private void run() {
+        try {
+            sample();
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            synchronized (this) {
+                if (sampler == Thread.currentThread()) {
+                    sampler = null; // died on its own, allow start() again
+                }
+            }
+        }
+    }
+
+    private void sample() {
+        StringBuilder builder = new StringBuilder();
+        while (sampler == Thread.currentThread()) {
+            for (StackSample sample : env.SampleStacks()) {
+                StackSample.Frame[] frames = sample.frames();
+                if (frames.length == 0) {
+                    continue; // idle thread
+                }
+
+                builder.setLength(0);
+                for (StackSample.Frame frame : frames) {
+                    if (builder.length() > 0) {
+                        builder.append(';');
+                    }
+                    if (frame.isNative()) {
+                        builder.append(NATIVE_PREFIX);
+                    }
+                    builder.append(frame.name());
+                }
+
+                if (frames[frames.length - 1].isNative()) {
+                    nativeSamples.incrementAndGet();
+                } else {
+                    bytecodeSamples.incrementAndGet();
+                }
+
+                stacks.computeIfAbsent(builder.toString(), k -> new AtomicLong()).incrementAndGet();
+            }
+
+            LockSupport.parkNanos(this, intervalNanos);
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package cum.jesus.ctni.natives;
+
+import cum.jesus.ctni.*;
+import cum.jesus.ctni.exception.BadHandleException;
+import cum.jesus.ctni.exception.SecurityException;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Minimal in-memory environment for the tests and benchmarks. Only the heap and int/long handles are supported,
+ * which is everything the per-element path and {@link VectorNatives} need. Every other call throws.
+ *
+ * @author JesusTouchMe
+ * @since 1.1
+ */
+final class HeapEnvironment implements IEnvironment {
+    private long nextId = 1;
+
+    @Override
+    public Handle Alloc(int size) {
+        return new Allocation(nextId++, new long[size]);
+    }
+
+    @Override
+    public Handle Read(Handle ptr, int offset) throws BadHandleException, SecurityException {
+        return new Value(nextId++, allocation(ptr).cell(offset));
+    }
+
+    @Override
+    public void Write(Handle ptr, int offset, Handle value) throws BadHandleException, SecurityException {
+        Allocation allocation = allocation(ptr);
+        allocation.check(offset, 1);
+        allocation.cells[offset] = GetLongFromHandle(value, true);
+    }
+
+    @Override
+    public MemoryView View(Handle ptr, int offset, int length, MemoryView.Access mode) throws BadHandleException, SecurityException {
+        Allocation allocation = allocation(ptr);
+        allocation.check(offset, length);
+        return new ArrayView(allocation.cells, offset, length, mode);
+    }
+
+    @Override
+    public Handle NewInt(int value) {
+        return new Value(nextId++, value);
+    }
+
+    @Override
+    public Handle NewLong(long value) {
+        return new Value(nextId++, value);
+    }
+
+    @Override
+    public int GetIntFromHandle(Handle handle, boolean force) throws BadHandleException {
+        return (int) GetLongFromHandle(handle, force);
+    }
+
+    @Override
+    public long GetLongFromHandle(Handle handle, boolean force) throws BadHandleException {
+        if (!(handle instanceof Value)) {
+            throw new BadHandleException("not a number");
+        }
+        return ((Value) handle).value;
+    }
+
+    @Override
+    public boolean IsInt(Handle handle) {
+        return handle instanceof Value;
+    }
+
+    @Override
+    public boolean IsLong(Handle handle) {
+        return handle instanceof Value;
+    }
+
+    private static Allocation allocation(Handle ptr) throws BadHandleException {
+        if (!(ptr instanceof Allocation)) {
+            throw new BadHandleException("not an allocation");
+        }
+        return (Allocation) ptr;
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("not supported by the benchmark environment");
+    }
+
+    private record Value(long id, long value) implements Handle {
+    }
+
+    private record Allocation(long id, long[] cells) implements Handle {
+        long cell(int offset) throws SecurityException {
+            check(offset, 1);
+            return cells[offset];
+        }
+
+        void check(int offset, int length) throws SecurityException {
+            if (offset < 0 || length < 0 || offset > cells.length - length) {
+                throw new SecurityException("out of bounds: " + offset + "+" + length + " of " + cells.length);
+            }
+        }
+    }
+
+    private static final class ArrayView implements MemoryView {
+        private final long[] cells;
+        private final int offset;
+        private final int length;
+        private final Access mode;
+
+        private ArrayView(long[] cells, int offset, int length, Access mode) {
+            this.cells = cells;
+            this.offset = offset;
+            this.length = length;
+            this.mode = mode;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public Access mode() {
+            return mode;
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public byte getByte(int index) {
+            return (byte) getLong(index);
+        }
+
+        @Override
+        public short getShort(int index) {
+            return (short) getLong(index);
+        }
+
+        @Override
+        public int getInt(int index) {
+            return (int) getLong(index);
+        }
+
+        @Override
+        public long getLong(int index) {
+            readable();
+            return cells[offset + index(index, 1)];
+        }
+
+        @Override
+        public String getString(int index) {
+            throw unsupported();
+        }
+
+        @Override
+        public Handle getHandle(int index) {
+            throw unsupported();
+        }
+
+        @Override
+        public void setByte(int index, byte value) {
+            setLong(index, value);
+        }
+
+        @Override
+        public void setShort(int index, short value) {
+            setLong(index, value);
+        }
+
+        @Override
+        public void setInt(int index, int value) {
+            setLong(index, value);
+        }
+
+        @Override
+        public void setLong(int index, long value) {
+            writable();
+            cells[offset + index(index, 1)] = value;
+        }
+
+        @Override
+        public void setString(int index, String value) {
+            throw unsupported();
+        }
+
+        @Override
+        public void setHandle(int index, Handle value) {
+            throw unsupported();
+        }
+
+        @Override
+        public void getInts(int index, int[] dst, int dstOffset, int count) {
+            readable();
+            int from = offset + index(index, count);
+            for (int i = 0; i < count; i++) {
+                dst[dstOffset + i] = (int) cells[from + i];
+            }
+        }
+
+        @Override
+        public void getLongs(int index, long[] dst, int dstOffset, int count) {
+            readable();
+            System.arraycopy(cells, offset + index(index, count), dst, dstOffset, count);
+        }
+
+        @Override
+        public void setInts(int index, int[] src, int srcOffset, int count) {
+            writable();
+            int to = offset + index(index, count);
+            for (int i = 0; i < count; i++) {
+                cells[to + i] = src[srcOffset + i];
+            }
+        }
+
+        @Override
+        public void setLongs(int index, long[] src, int srcOffset, int count) {
+            writable();
+            System.arraycopy(src, srcOffset, cells, offset + index(index, count), count);
+        }
+
+        private int index(int index, int count) {
+            if (index < 0 || count < 0 || index > length - count) {
+                throw new IndexOutOfBoundsException(index + "+" + count + " of " + length);
+            }
+            return index;
+        }
+
+        private void readable() {
+            if (mode == Access.WRITE) {
+                throw new UnsupportedOperationException("view is write-only");
+            }
+        }
+
+        private void writable() {
+            if (mode == Access.READ) {
+                throw new UnsupportedOperationException("view is read-only");
+            }
+        }
+    }
+
+    @Override
+    public Handle GetModule(String arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle GetModule() {
+        throw unsupported();
+    }
+
+    @Override
+    public DiagnosticReport PreviewLatestError() {
+        throw unsupported();
+    }
+
+    @Override
+    public DiagnosticReport GetLatestError() {
+        throw unsupported();
+    }
+
+    @Override
+    public DiagnosticReport[] GetAllErrors() {
+        throw unsupported();
+    }
+
+    @Override
+    public StackSample[] SampleStacks() {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle GetFunction(Handle arg0, String arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle GetFunction(String arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public void CallVoidFunction(Handle arg0, Object... arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public void CallVoidFunctionA(Handle arg0, Object[] arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public void CallVoidFunctionL(Handle arg0, List<Object> arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public byte CallByteFunction(Handle arg0, Object... arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public byte CallByteFunctionA(Handle arg0, Object[] arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public byte CallByteFunctionL(Handle arg0, List<Object> arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public short CallShortFunction(Handle arg0, Object... arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public short CallShortFunctionA(Handle arg0, Object[] arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public short CallShortFunctionL(Handle arg0, List<Object> arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public int CallIntFunction(Handle arg0, Object... arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public int CallIntFunctionA(Handle arg0, Object[] arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public int CallIntFunctionL(Handle arg0, List<Object> arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public long CallLongFunction(Handle arg0, Object... arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public long CallLongFunctionA(Handle arg0, Object[] arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public long CallLongFunctionL(Handle arg0, List<Object> arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public String CallStringFunction(Handle arg0, Object... arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public String CallStringFunctionA(Handle arg0, Object[] arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public String CallStringFunctionL(Handle arg0, List<Object> arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle CallHandleFunction(Handle arg0, Object... arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle CallHandleFunctionA(Handle arg0, Object[] arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle CallHandleFunctionL(Handle arg0, List<Object> arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle CallHandleFunctionBorrowed(Handle arg0, Object... arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle CallHandleFunctionBorrowedA(Handle arg0, Object[] arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle CallHandleFunctionBorrowedL(Handle arg0, List<Object> arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public int ParallelMap(Handle arg0, Handle arg1, Handle arg2, int arg3) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle ParallelReduce(Handle arg0, Handle arg1, int arg2, Handle arg3) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle CallInterruptFunction(int arg0, byte arg1, byte arg2, byte arg3, Object... arg4) {
+        throw unsupported();
+    }
+
+    @Override
+    public InterruptSite ResolveInterrupt(int arg0, byte arg1, byte arg2, byte arg3) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean IsByte(Handle arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean IsShort(Handle arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean IsNumber(Handle arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean IsString(Handle arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean IsModule(Handle arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean IsFunction(Handle arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public byte GetByteFromHandle(Handle arg0, boolean arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public short GetShortFromHandle(Handle arg0, boolean arg1) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public String GetStringFromHandle(Handle arg) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean IsBorrowed(Handle arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle Clone(Handle arg) throws BadHandleException {
+        throw unsupported();
+    }
+
+    @Override
+    public byte TryGetByteFromHandle(Handle arg0, byte arg1) {
+        throw unsupported();
+    }
+
+    @Override
+    public short TryGetShortFromHandle(Handle arg0, short arg1) {
+        throw unsupported();
+    }
+
+    @Override
+    public int TryGetIntFromHandle(Handle arg0, int arg1) {
+        throw unsupported();
+    }
+
+    @Override
+    public long TryGetLongFromHandle(Handle arg0, long arg1) {
+        throw unsupported();
+    }
+
+    @Override
+    public String TryGetStringFromHandle(Handle arg0, String arg1) {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle NewByte(byte arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle NewShort(short arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle NewString(String arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public Handle ReAlloc(Handle arg0, int arg1) {
+        throw unsupported();
+    }
+
+    @Override
+    public void Free(Handle arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public void SetAllocationSampler(int arg0, AllocationListener arg1) {
+        throw unsupported();
+    }
+
+    @Override
+    public void ReleaseAllocationBuffer() {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean SnapshotHeap(Path arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean RestoreHeap(Path arg) {
+        throw unsupported();
+    }
+
+    @Override
+    public ReadResult TryRead(Handle arg0, int arg1) {
+        throw unsupported();
+    }
+
+    @Override
+    public AccessStatus TryWrite(Handle arg0, int arg1, Handle arg2) {
+        throw unsupported();
+    }
+
+    @Override
+    public Object[] ReadValues(Handle arg0, int arg1, int arg2) throws BadHandleException, SecurityException {
+        throw unsupported();
+    }
+
+    @Override
+    public void WriteValues(Handle arg0, int arg1, Object[] arg2) throws BadHandleException, SecurityException {
+        throw unsupported();
+    }
+}
@@ -0,0 +1,77 @@
+package cum.jesus.ctni.natives;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class KernelsTest {
+    private final ScalarKernels scalar = new ScalarKernels();
+
+    @Test
+    void vectorNativesUseVectorKernels() {
+        vectorKernels();
+        assertTrue(VectorNatives.isVectorized());
+    }
+
+    @Test
+    void vectorKernelsMatchScalarKernels() {
+        ScalarKernels vector = vectorKernels();
+        Random random = new Random(1);
+        for (int run = 0; run < 500; run++) {
+            int length = random.nextInt(300);
+            int from = length == 0 ? 0 : random.nextInt(length);
+            int[] a = new int[length];
+            int[] b = new int[length];
+            for (int i = 0; i < length; i++) {
+                a[i] = random.nextInt();
+                b[i] = random.nextInt();
+            }
+
+            assertEquals(scalar.sum(a, from, length), vector.sum(a, from, length));
+            assertEquals(scalar.dot(a, b, from, length), vector.dot(a, b, from, length));
+
+            int[] scalarMinMax = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+            int[] vectorMinMax = scalarMinMax.clone();
+            scalar.minMax(a, from, length, scalarMinMax);
+            vector.minMax(a, from, length, vectorMinMax);
+            assertArrayEquals(scalarMinMax, vectorMinMax);
+
+            int[] scalarScaled = a.clone();
+            int[] vectorScaled = a.clone();
+            int factor = random.nextInt();
+            scalar.scale(scalarScaled, from, length, factor);
+            vector.scale(vectorScaled, from, length, factor);
+            assertArrayEquals(scalarScaled, vectorScaled);
+
+            int[] scalarBuckets = new int[16];
+            int[] vectorBuckets = new int[16];
+            scalar.histogram(a, from, length, -1 << 30, 1 << 27, scalarBuckets);
+            vector.histogram(a, from, length, -1 << 30, 1 << 27, vectorBuckets);
+            assertArrayEquals(scalarBuckets, vectorBuckets);
+        }
+    }
+
+    @Test
+    void scalarKernelsAreCorrect() {
+        int[] a = {3, -7, 12, 0, 5};
+        assertEquals(13, scalar.sum(a, 0, a.length));
+        assertEquals(9 + 49 + 144 + 25, scalar.dot(a, a, 0, a.length));
+
+        int[] minMax = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        scalar.minMax(a, 1, a.length, minMax);
+        assertArrayEquals(new int[]{-7, 12}, minMax);
+
+        int[] buckets = new int[3];
+        scalar.histogram(a, 0, a.length, 0, 5, buckets);
+        assertArrayEquals(new int[]{2, 1, 1}, buckets); // {3, 0}, {5}, {12}, -7 is below min
+    }
+
+    private static ScalarKernels vectorKernels() {
+        ScalarKernels vector = VectorNatives.vectorKernels();
+        assumeTrue(vector != null, "jdk.incubator.vector is not available");
+        return vector;
+    }
+}
@@ -0,0 +1,118 @@
+package cum.jesus.ctni.natives;
+
+import cum.jesus.ctni.Handle;
+import cum.jesus.ctni.IEnvironment;
+import cum.jesus.ctni.MemoryView;
+import cum.jesus.ctni.NativeFunction;
+import cum.jesus.ctni.exception.BadHandleException;
+import cum.jesus.ctni.exception.SecurityException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorNativesTest {
+    // more than two chunks of 8192 and not a multiple of any vector length
+    private static final int LENGTH = 8192 * 2 + 1001;
+
+    private final IEnvironment env = new HeapEnvironment();
+    private final Map<String, NativeFunction> functions = new HashMap<>();
+
+    VectorNativesTest() {
+        new VectorNatives().injectMethods(functions);
+    }
+
+    @Test
+    void sumAndDotSpanChunks() throws Exception {
+        Random random = new Random(1);
+        int[] a = random.ints(LENGTH).toArray();
+        int[] b = random.ints(LENGTH).toArray();
+        Handle ptrA = ints(a);
+        Handle ptrB = ints(b);
+
+        long sum = 0;
+        long dot = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            sum += a[i];
+            dot += (long) a[i] * b[i];
+        }
+
+        assertEquals(sum, env.GetLongFromHandle(call("vec_sum", ptrA, LENGTH), false));
+        assertEquals(dot, env.GetLongFromHandle(call("vec_dot", ptrA, ptrB, LENGTH), false));
+        assertEquals(a[0] + (long) a[1], env.GetLongFromHandle(call("vec_sum", ptrA, 2), false));
+        assertEquals(0, env.GetLongFromHandle(call("vec_sum", ptrA, 0), false));
+    }
+
+    @Test
+    void minMaxAndHistogramAllocateResults() throws Exception {
+        int[] a = new int[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            a[i] = i % 100;
+        }
+        a[LENGTH - 1] = -5; // last chunk
+        a[8192] = 1000; // first element of the second chunk
+        Handle ptr = ints(a);
+
+        assertArrayEquals(new int[]{-5, 1000}, read(call("vec_minmax", ptr, LENGTH), 2));
+        assertArrayEquals(new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE}, read(call("vec_minmax", ptr, 0), 2));
+
+        int[] expected = new int[2];
+        for (int value : a) {
+            if (value >= 0 && value < 100) {
+                expected[value / 50]++;
+            }
+        }
+        assertArrayEquals(expected, read(call("vec_hist", ptr, LENGTH, 0, 50, 2), 2));
+    }
+
+    @Test
+    void scaleWritesBackEveryChunk() throws Exception {
+        int[] a = new Random(2).ints(LENGTH, -1000, 1000).toArray();
+        Handle ptr = ints(a);
+
+        assertSame(ptr, call("vec_scale", ptr, LENGTH, -3));
+        int[] scaled = read(ptr, LENGTH);
+        for (int i = 0; i < LENGTH; i++) {
+            assertEquals(a[i] * -3, scaled[i], "index " + i);
+        }
+    }
+
+    @Test
+    void rejectsBadArguments() throws Exception {
+        Handle ptr = ints(new int[10]);
+
+        IllegalArgumentException negative = assertThrows(IllegalArgumentException.class, () -> call("vec_sum", ptr, -1));
+        assertEquals("negative length -1", negative.getMessage());
+
+        IllegalArgumentException badHandle = assertThrows(IllegalArgumentException.class, () -> call("vec_sum", env.NewInt(1), 1));
+        assertInstanceOf(BadHandleException.class, badHandle.getCause());
+        assertTrue(badHandle.getMessage().startsWith("vec_sum: "), badHandle.getMessage());
+
+        IllegalArgumentException outOfBounds = assertThrows(IllegalArgumentException.class, () -> call("vec_dot", ptr, ptr, 11));
+        assertInstanceOf(SecurityException.class, outOfBounds.getCause());
+        assertTrue(outOfBounds.getMessage().startsWith("vec_dot: "), outOfBounds.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> call("vec_hist", ptr, 10, 0, 0, 1));
+    }
+
+    private Handle call(String name, Object... args) {
+        NativeFunction function = functions.get(name);
+        assertEquals(function.argc(), args.length);
+        return function.call(env, args);
+    }
+
+    private Handle ints(int[] values) throws BadHandleException, SecurityException {
+        Handle ptr = env.Alloc(values.length);
+        env.View(ptr, 0, values.length, MemoryView.Access.WRITE).setInts(0, values, 0, values.length);
+        return ptr;
+    }
+
+    private int[] read(Handle ptr, int length) throws BadHandleException, SecurityException {
+        int[] values = new int[length];
+        env.View(ptr, 0, length, MemoryView.Access.READ).getInts(0, values, 0, length);
+        return values;
+    }
+}
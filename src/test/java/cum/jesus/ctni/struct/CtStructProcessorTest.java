@@ -0,0 +1,137 @@
+package cum.jesus.ctni.struct;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CtStructProcessorTest {
+    private static final String SHAPES = String.join("\n",
+            "package demo;",
+            "",
+            "import cum.jesus.ctni.Handle;",
+            "import cum.jesus.ctni.struct.CtStruct;",
+            "",
+            "public class Shapes {",
+            "    @CtStruct",
+            "    public record Point(int x, long y) {}",
+            "",
+            "    @CtStruct",
+            "    public record Line(Point a, Point b, String name, Handle tag, byte kind, short width) {}",
+            "}");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsNestedStructs() throws Exception {
+        ClassLoader loader = compile(SHAPES);
+        Class<?> pointClass = loader.loadClass("demo.Shapes$Point");
+        Class<?> lineClass = loader.loadClass("demo.Shapes$Line");
+        StructCodec<Object> pointCodec = codec(loader, "demo.Shapes_PointCodec");
+        StructCodec<Object> lineCodec = codec(loader, "demo.Shapes_LineCodec");
+
+        assertEquals(2, pointCodec.slots());
+        assertEquals(8, lineCodec.slots());
+
+        Object a = pointClass.getConstructor(int.class, long.class).newInstance(1, 2L);
+        Object b = pointClass.getConstructor(int.class, long.class).newInstance(3, 4L);
+        Object line = lineClass.getConstructors()[0].newInstance(a, b, "diagonal", null, (byte) 5, (short) 6);
+
+        Object[] slots = new Object[lineCodec.slots() + 1];
+        lineCodec.encode(line, slots, 1);
+        assertArrayEquals(new Object[]{null, 1, 2L, 3, 4L, "diagonal", null, (byte) 5, (short) 6}, slots);
+        assertEquals(line, lineCodec.decode(slots, 1));
+
+        // the vm may hand numbers back as any width
+        Object[] widened = {1L, 2};
+        assertEquals(a, pointCodec.decode(widened, 0));
+    }
+
+    @Test
+    void generatesCompilableCodecsUnderTurkishLocale() throws Exception {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            ClassLoader loader = compile(SHAPES);
+            assertEquals(2, codec(loader, "demo.Shapes_PointCodec").slots());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    void rejectsUnsupportedComponents() throws IOException {
+        List<Diagnostic<? extends JavaFileObject>> errors = compileWithErrors(String.join("\n",
+                "package demo;",
+                "@cum.jesus.ctni.struct.CtStruct record Bad(double d) {}"));
+        assertTrue(errors.stream().anyMatch(d -> d.getMessage(Locale.ROOT).contains("unsupported @CtStruct component type double")));
+    }
+
+    @Test
+    void rejectsRecursiveStructs() throws IOException {
+        List<Diagnostic<? extends JavaFileObject>> errors = compileWithErrors(String.join("\n",
+                "package demo;",
+                "@cum.jesus.ctni.struct.CtStruct record Node(int value, Node next) {}"));
+        assertTrue(errors.stream().anyMatch(d -> d.getMessage(Locale.ROOT).contains("can't contain themselves")));
+    }
+
+    @Test
+    void rejectsInaccessibleStructs() throws IOException {
+        List<Diagnostic<? extends JavaFileObject>> errors = compileWithErrors(String.join("\n",
+                "package demo;",
+                "import cum.jesus.ctni.struct.CtStruct;",
+                "class Outer {",
+                "    @CtStruct private record P(int x) {}",
+                "    private static class Hidden {",
+                "        @CtStruct record Q(int x) {}",
+                "    }",
+                "}"));
+        assertEquals(2, errors.stream().filter(d -> d.getMessage(Locale.ROOT).contains("can't be private or nested in a private class")).count(), errors::toString);
+        assertEquals(2, errors.size(), errors::toString);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static StructCodec<Object> codec(ClassLoader loader, String name) throws ReflectiveOperationException {
+        return (StructCodec<Object>) loader.loadClass(name).getField("INSTANCE").get(null);
+    }
+
+    private ClassLoader compile(String source) throws IOException {
+        List<Diagnostic<? extends JavaFileObject>> errors = compileWithErrors(source);
+        assertTrue(errors.isEmpty(), () -> "compilation failed: " + errors);
+        return new URLClassLoader(new URL[]{dir.resolve("classes").toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> compileWithErrors(String source) throws IOException {
+        Path sources = Files.createDirectories(dir.resolve("src/demo"));
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+        Path file = sources.resolve(source.contains("class Shapes") ? "Shapes.java" : source.substring(source.indexOf("record ") + 7, source.indexOf('(')) + ".java");
+        Files.writeString(file, source);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, Locale.ROOT, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics,
+                    List.of("-d", classes.toString(), "-classpath", System.getProperty("java.class.path")),
+                    null, files.getJavaFileObjects(file));
+            task.setProcessors(List.of(new CtStructProcessor()));
+            task.call();
+        }
+
+        return diagnostics.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR).toList();
+    }
+}
@@ -0,0 +1,74 @@
+package cum.jesus.ctni.struct;
+
+import cum.jesus.ctni.Handle;
+import cum.jesus.ctni.IEnvironment;
+import cum.jesus.ctni.exception.SecurityException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StructsTest {
+    private static final StructCodec<Integer> INT = new StructCodec<>() {
+        @Override
+        public int slots() {
+            return 1;
+        }
+
+        @Override
+        public void encode(Integer value, Object[] dst, int offset) {
+            dst[offset] = value.intValue();
+        }
+
+        @Override
+        public Integer decode(Object[] src, int offset) {
+            return ((Number) src[offset]).intValue();
+        }
+    };
+
+    private final Handle allocation = () -> 7;
+    private final List<Handle> freed = new ArrayList<>();
+
+    @Test
+    void allocFreesWhenWriteFails() {
+        IEnvironment env = env(true);
+        assertThrows(SecurityException.class, () -> Structs.alloc(env, INT, 1));
+        assertThrows(SecurityException.class, () -> Structs.allocArray(env, INT, List.of(1, 2)));
+        assertEquals(List.of(allocation, allocation), freed);
+    }
+
+    @Test
+    void allocFreesWhenEncodingFails() {
+        IEnvironment env = env(false);
+        assertThrows(NullPointerException.class, () -> Structs.alloc(env, INT, null));
+        assertEquals(List.of(allocation), freed);
+    }
+
+    @Test
+    void allocKeepsWrittenAllocation() throws Exception {
+        assertSame(allocation, Structs.allocArray(env(false), INT, List.of(1, 2)));
+        assertTrue(freed.isEmpty());
+    }
+
+    private IEnvironment env(boolean rejectWrites) {
+        return (IEnvironment) Proxy.newProxyInstance(IEnvironment.class.getClassLoader(), new Class<?>[]{IEnvironment.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "Alloc":
+                    return allocation;
+                case "WriteValues":
+                    if (rejectWrites) {
+                        throw new SecurityException("memory is write-protected");
+                    }
+                    return null;
+                case "Free":
+                    freed.add((Handle) args[0]);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package cum.jesus.ctni.util;
+
+import cum.jesus.ctni.AllocationSite;
+import cum.jesus.ctni.Handle;
+import cum.jesus.ctni.IEnvironment;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationProfilerTest {
+    private static final AllocationSite DRAW = site("main.draw", null);
+    private static final AllocationSite PRINT = site("main.run", "print");
+
+    private final AllocationProfiler profiler = new AllocationProfiler(10);
+
+    @Test
+    void tracksLiveValuesBySite() {
+        profiler.onAlloc(handle(1), 5, DRAW);
+        profiler.onAlloc(handle(2), 3, DRAW);
+        profiler.onAlloc(handle(3), 4, PRINT);
+
+        List<AllocationProfiler.SiteStats> stats = profiler.liveBySite();
+        assertEquals(List.of("main.draw", "main.run;[native] print"), sites(stats));
+        assertEquals(80, stats.get(0).liveValues());
+        assertEquals(40, stats.get(1).liveValues());
+        assertNull(stats.get(0).site().nativeFrame());
+        assertEquals("print", stats.get(1).site().nativeFrame());
+
+        profiler.onFree(handle(1));
+        profiler.onFree(handle(3));
+        profiler.onFree(handle(3)); // already gone
+        profiler.onFree(handle(99)); // never sampled
+        stats = profiler.liveBySite();
+        assertEquals(List.of("main.draw"), sites(stats));
+        assertEquals(30, stats.get(0).liveValues());
+    }
+
+    @Test
+    void reAllocMovesSample() {
+        profiler.onAlloc(handle(1), 5, DRAW);
+        profiler.onReAlloc(handle(1), handle(2), 8);
+        assertEquals(80, profiler.liveBySite().get(0).liveValues());
+
+        // same handle when resized in place
+        profiler.onReAlloc(handle(2), handle(2), 2);
+        assertEquals(20, profiler.liveBySite().get(0).liveValues());
+        assertEquals(2, profiler.findLeaks(Duration.ZERO).get(0).size());
+
+        profiler.onReAlloc(handle(1), handle(3), 100); // old handle isn't sampled anymore
+        profiler.onReAlloc(handle(99), handle(98), 100);
+        assertEquals(20, profiler.liveBySite().get(0).liveValues());
+
+        profiler.onFree(handle(2));
+        assertTrue(profiler.liveBySite().isEmpty());
+        assertTrue(profiler.findLeaks(Duration.ZERO).isEmpty());
+    }
+
+    @Test
+    void findsLeaksOldestFirst() throws InterruptedException {
+        profiler.onAlloc(handle(1), 1, DRAW);
+        Thread.sleep(2);
+        profiler.onAlloc(handle(2), 2, PRINT);
+        Thread.sleep(2);
+        profiler.onAlloc(handle(3), 3, DRAW);
+        profiler.onFree(handle(2));
+
+        List<AllocationProfiler.Leak> leaks = profiler.findLeaks(Duration.ZERO);
+        assertEquals(2, leaks.size());
+        assertEquals(1, leaks.get(0).size());
+        assertEquals(3, leaks.get(1).size());
+        assertTrue(leaks.get(0).age().compareTo(leaks.get(1).age()) > 0);
+        assertTrue(profiler.findLeaks(Duration.ofDays(1)).isEmpty());
+
+        String dump = profiler.dump(Duration.ZERO);
+        assertTrue(dump.contains("1 in 10 sampled"), dump);
+        assertTrue(dump.contains("  40 main.draw\n"), dump);
+        assertTrue(dump.contains("  1 values, "), dump);
+    }
+
+    @Test
+    void attachAndDetachSetTheSampler() {
+        List<Object[]> calls = new ArrayList<>();
+        IEnvironment env = (IEnvironment) Proxy.newProxyInstance(IEnvironment.class.getClassLoader(), new Class<?>[]{IEnvironment.class}, (proxy, method, args) -> {
+            if (method.getName().equals("SetAllocationSampler")) {
+                calls.add(args);
+                return null;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        profiler.attach(env);
+        profiler.detach(env);
+        assertEquals(2, calls.size());
+        assertEquals(Arrays.asList(10, profiler), Arrays.asList(calls.get(0)));
+        assertEquals(Arrays.asList(0, null), Arrays.asList(calls.get(1)));
+    }
+
+    @Test
+    void rejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new AllocationProfiler(0));
+    }
+
+    private static List<String> sites(List<AllocationProfiler.SiteStats> stats) {
+        return stats.stream().map(s -> s.site().toString()).toList();
+    }
+
+    /**
+     * A new handle object every time, like a vm would hand out.
+     */
+    private static Handle handle(long id) {
+        return () -> id;
+    }
+
+    private static AllocationSite site(String function, String nativeFrame) {
+        return new AllocationSite() {
+            @Override
+            public Handle module() {
+                return handle(-1);
+            }
+
+            @Override
+            public Handle function() {
+                return handle(-2);
+            }
+
+            @Override
+            public String functionName() {
+                return function;
+            }
+
+            @Override
+            public String nativeFrame() {
+                return nativeFrame;
+            }
+        };
+    }
+}
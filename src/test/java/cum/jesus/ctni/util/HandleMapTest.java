@@ -0,0 +1,131 @@
+package cum.jesus.ctni.util;
+
+import cum.jesus.ctni.Handle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HandleMapTest {
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    void handleMapMatchesHashMap() {
+        Random random = new Random(1);
+        HandleMap<Long> map = new HandleMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            Handle handle = handle(randomId(random));
+            long id = handle.id();
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    long value = random.nextLong();
+                    assertEquals(expected.put(id, value), map.put(handle, value), "put " + id);
+                }
+                case 1 -> assertEquals(expected.remove(id), map.remove(handle), "remove " + id);
+                case 2 -> assertEquals(expected.containsKey(id), map.containsKey(handle), "containsKey " + id);
+                default -> assertEquals(expected.get(id), map.get(handle), "get " + id);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        List<Long> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        values.sort(null);
+        List<Long> expectedValues = new ArrayList<>(expected.values());
+        expectedValues.sort(null);
+        assertEquals(expectedValues, values);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+        for (long id : expected.keySet()) {
+            assertNull(map.get(id));
+        }
+    }
+
+    @Test
+    void handleLongMapMatchesHashMap() {
+        Random random = new Random(2);
+        HandleLongMap map = new HandleLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            Handle handle = handle(randomId(random));
+            long id = handle.id();
+            switch (random.nextInt(5)) {
+                case 0 -> {
+                    long value = random.nextLong();
+                    expected.put(id, value);
+                    map.put(handle, value);
+                }
+                case 1 -> {
+                    long delta = random.nextInt(201) - 100;
+                    assertEquals(expected.merge(id, delta, Long::sum), map.addTo(handle, delta), "addTo " + id);
+                }
+                case 2 -> assertEquals(expected.remove(id) != null, map.remove(handle), "remove " + id);
+                case 3 -> assertEquals(expected.containsKey(id), map.containsKey(handle), "containsKey " + id);
+                default -> assertEquals(expected.getOrDefault(id, -1L), map.get(handle, -1), "get " + id);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(-1, map.get(0, -1));
+        for (long id : expected.keySet()) {
+            assertEquals(-1, map.get(id, -1));
+        }
+    }
+
+    @Test
+    void zeroIdIsAnOrdinaryKey() {
+        HandleLongMap counts = new HandleLongMap();
+        assertFalse(counts.containsKey(handle(0)));
+        assertEquals(3, counts.addTo(0, 3));
+        assertEquals(7, counts.addTo(0, 4));
+        assertEquals(1, counts.size());
+        assertTrue(counts.remove(0));
+        assertFalse(counts.remove(0));
+        assertTrue(counts.isEmpty());
+
+        HandleMap<String> names = new HandleMap<>();
+        assertNull(names.put(0, "zero"));
+        assertEquals("zero", names.put(0, "again"));
+        assertEquals(1, names.size());
+        assertEquals("again", names.remove(0));
+        assertTrue(names.isEmpty());
+    }
+
+    @Test
+    void tableSizeKeepsTablesAtMostHalfFull() {
+        assertEquals(16, HandleMap.tableSize(0));
+        assertEquals(16, HandleMap.tableSize(8));
+        assertEquals(32, HandleMap.tableSize(9));
+        assertEquals(1 << 30, HandleMap.tableSize(1 << 29));
+        assertThrows(IllegalArgumentException.class, () -> HandleMap.tableSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> HandleMap.tableSize((1 << 29) + 1));
+    }
+
+    /**
+     * Mostly a small range so keys get reused, including 0 and negative ids, plus some ids whose low bits all collide.
+     */
+    private static long randomId(Random random) {
+        return switch (random.nextInt(10)) {
+            case 0 -> 0;
+            case 1 -> (long) random.nextInt(64) << 40;
+            case 2 -> random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE;
+            default -> random.nextInt(3000) - 10;
+        };
+    }
+
+    private static Handle handle(long id) {
+        return () -> id;
+    }
+}
@@ -0,0 +1,144 @@
+package cum.jesus.ctni.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoaderIndexTest {
+    @TempDir
+    Path dir;
+
+    private Path jar;
+    private Path indexFile;
+
+    @BeforeEach
+    void createJar() throws IOException {
+        jar = dir.resolve("lib.jar");
+        indexFile = dir.resolve("index.bin");
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("CT-Loader", "com.example.Loader");
+        try (OutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            out.flush();
+        }
+    }
+
+    @Test
+    void unchangedJarIsResolvedFromTheIndex() throws IOException {
+        LoaderIndex first = LoaderIndex.load(indexFile);
+        LoaderIndex.Entry entry = first.resolve(jar);
+        assertEquals("com.example.Loader", entry.loaderClass());
+        assertNull(entry.natives());
+        assertTrue(entry.providesAny(Set.of("anything")));
+        first.recordNatives(jar, List.of("print", "read"));
+        first.save();
+        assertEquals(1, first.timings().misses());
+
+        LoaderIndex second = LoaderIndex.load(indexFile);
+        entry = second.resolve(jar);
+        assertEquals(1, second.timings().hits());
+        assertEquals(0, second.timings().misses());
+        assertEquals("com.example.Loader", entry.loaderClass());
+        assertEquals(List.of("print", "read"), entry.natives());
+        assertTrue(entry.providesAny(Set.of("read")));
+        assertFalse(entry.providesAny(Set.of("write")));
+    }
+
+    @Test
+    void missingFileGivesEmptyIndex() throws IOException {
+        assertEquals(1, rescan(LoaderIndex.load(indexFile)));
+    }
+
+    @Test
+    void hugeNativesCountGivesEmptyIndex() throws IOException {
+        writeIndex(out -> {
+            out.writeInt(1);
+            out.writeUTF(jar.toAbsolutePath().normalize().toString());
+            out.writeLong(Files.size(jar));
+            out.writeLong(Files.getLastModifiedTime(jar).toMillis());
+            out.writeUTF("com.example.Loader");
+            out.writeInt(Integer.MAX_VALUE - 8);
+        });
+        assertEquals(1, rescan(LoaderIndex.load(indexFile)));
+    }
+
+    @Test
+    void hugeEntryCountGivesEmptyIndex() throws IOException {
+        writeIndex(out -> out.writeInt(Integer.MAX_VALUE));
+        assertEquals(1, rescan(LoaderIndex.load(indexFile)));
+    }
+
+    @Test
+    void flippedBitGivesEmptyIndex() throws IOException {
+        LoaderIndex index = LoaderIndex.load(indexFile);
+        index.resolve(jar);
+        index.save();
+
+        byte[] bytes = Files.readAllBytes(indexFile);
+        int loaderClass = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("com.example.Loader");
+        bytes[loaderClass] ^= 1;
+        Files.write(indexFile, bytes);
+
+        assertEquals(1, rescan(LoaderIndex.load(indexFile)));
+    }
+
+    @Test
+    void truncatedFileGivesEmptyIndex() throws IOException {
+        LoaderIndex index = LoaderIndex.load(indexFile);
+        index.resolve(jar);
+        index.save();
+
+        byte[] bytes = Files.readAllBytes(indexFile);
+        Files.write(indexFile, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertEquals(1, rescan(LoaderIndex.load(indexFile)));
+    }
+
+    /**
+     * Resolves the jar and returns how many jars had to be scanned, which is 1 if the index didn't know it.
+     */
+    private int rescan(LoaderIndex index) throws IOException {
+        assertEquals("com.example.Loader", index.resolve(jar).loaderClass());
+        return index.timings().misses();
+    }
+
+    /**
+     * Writes an index file with a valid header and checksum around the given payload.
+     */
+    private void writeIndex(Payload payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        payload.write(new DataOutputStream(bytes));
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(indexFile))) {
+            out.writeInt(0x43544C49);
+            out.writeInt(2);
+            out.writeLong(crc.getValue());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
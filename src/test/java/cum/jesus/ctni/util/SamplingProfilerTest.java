@@ -0,0 +1,138 @@
+package cum.jesus.ctni.util;
+
+import cum.jesus.ctni.IEnvironment;
+import cum.jesus.ctni.StackSample;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingProfilerTest {
+    @Test
+    void writesCollapsedStacks() throws Exception {
+        StackSample inNative = sample("main.run", "main.draw", "!print");
+        StackSample inBytecode = sample("main.run");
+        StackSample idle = sample();
+        SamplingProfiler profiler = new SamplingProfiler(env(() -> new StackSample[]{inNative, inBytecode, idle}), 100, TimeUnit.MICROSECONDS);
+
+        profiler.start();
+        while (profiler.nativeSamples() < 5) {
+            Thread.sleep(1);
+        }
+        profiler.stop();
+        assertFalse(profiler.isRunning());
+        assertEquals(profiler.nativeSamples(), profiler.bytecodeSamples());
+
+        StringWriter out = new StringWriter();
+        profiler.writeCollapsed(out);
+        String collapsed = out.toString();
+        assertTrue(collapsed.contains("main.run;main.draw;[native] print " + profiler.nativeSamples() + "\n"), collapsed);
+        assertTrue(collapsed.contains("main.run " + profiler.bytecodeSamples() + "\n"), collapsed);
+        assertEquals(2, collapsed.lines().count());
+    }
+
+    @Test
+    void keepsNativeFramesAroundCallbacks() throws Exception {
+        StackSample inCallback = sample("main.run", "!forEach", "main.visit");
+        StackSample nestedNative = sample("main.run", "!forEach", "main.visit", "!print");
+        SamplingProfiler profiler = new SamplingProfiler(env(() -> new StackSample[]{inCallback, nestedNative}), 100, TimeUnit.MICROSECONDS);
+
+        profiler.start();
+        while (profiler.nativeSamples() < 5) {
+            Thread.sleep(1);
+        }
+        profiler.stop();
+        assertEquals(profiler.nativeSamples(), profiler.bytecodeSamples());
+        assertTrue(nestedNative.isInNative());
+        assertFalse(inCallback.isInNative());
+
+        StringWriter out = new StringWriter();
+        profiler.writeCollapsed(out);
+        String collapsed = out.toString();
+        assertTrue(collapsed.contains("main.run;[native] forEach;main.visit " + profiler.bytecodeSamples() + "\n"), collapsed);
+        assertTrue(collapsed.contains("main.run;[native] forEach;main.visit;[native] print " + profiler.nativeSamples() + "\n"), collapsed);
+    }
+
+    @Test
+    void failureStopsSamplingAndAllowsRestart() throws Exception {
+        RuntimeException broken = new IllegalStateException("vm is gone");
+        boolean[] fail = {true};
+        SamplingProfiler profiler = new SamplingProfiler(env(() -> {
+            if (fail[0]) {
+                throw broken;
+            }
+            return new StackSample[]{sample("main.run")};
+        }), 100, TimeUnit.MICROSECONDS);
+
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> {});
+        try {
+            profiler.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (profiler.isRunning() && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+
+        assertFalse(profiler.isRunning());
+        assertSame(broken, profiler.failure());
+        profiler.stop(); // must not hang on the dead thread
+
+        fail[0] = false;
+        profiler.start();
+        assertNull(profiler.failure());
+        while (profiler.bytecodeSamples() == 0) {
+            Thread.sleep(1);
+        }
+        profiler.stop();
+    }
+
+    /**
+     * Frames prefixed with "!" are native.
+     */
+    private static StackSample sample(String... names) {
+        StackSample.Frame[] frames = new StackSample.Frame[names.length];
+        for (int i = 0; i < names.length; i++) {
+            boolean isNative = names[i].startsWith("!");
+            String name = isNative ? names[i].substring(1) : names[i];
+            frames[i] = new StackSample.Frame() {
+                @Override
+                public String name() {
+                    return name;
+                }
+
+                @Override
+                public boolean isNative() {
+                    return isNative;
+                }
+            };
+        }
+
+        return new StackSample() {
+            @Override
+            public Thread thread() {
+                return Thread.currentThread();
+            }
+
+            @Override
+            public Frame[] frames() {
+                return frames;
+            }
+        };
+    }
+
+    private static IEnvironment env(Supplier<StackSample[]> samples) {
+        return (IEnvironment) Proxy.newProxyInstance(IEnvironment.class.getClassLoader(), new Class<?>[]{IEnvironment.class}, (proxy, method, args) -> {
+            if (method.getName().equals("SampleStacks")) {
+                return samples.get();
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package cum.jesus.ctni.natives;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Bulk numeric kernels using the incubating Vector API, processing as many lanes at once as the cpu prefers.
+ * Only loaded when the jdk.incubator.vector module is present. The histogram has no useful vector form and is inherited from {@link ScalarKernels}.
+ *
+ * @author JesusTouchMe
+ * @since 1.1
+ */
+final class VectorKernels extends ScalarKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    // Half-width ints with one lane per long lane, so widening is a plain lane-for-lane cast.
+    // Splitting a full-width vector into parts isn't intrinsified everywhere and ends up far slower than the scalar loop
+    private static final VectorSpecies<Integer> WIDENED_INTS = VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    @Override
+    long sum(int[] a, int from, int to) {
+        LongVector acc = LongVector.zero(LONGS);
+        int i = from;
+        for (int bound = from + WIDENED_INTS.loopBound(to - from); i < bound; i += WIDENED_INTS.length()) {
+            acc = acc.add(widen(a, i));
+        }
+        return acc.reduceLanes(VectorOperators.ADD) + super.sum(a, i, to);
+    }
+
+    @Override
+    long dot(int[] a, int[] b, int from, int to) {
+        LongVector acc = LongVector.zero(LONGS);
+        int i = from;
+        for (int bound = from + WIDENED_INTS.loopBound(to - from); i < bound; i += WIDENED_INTS.length()) {
+            acc = acc.add(widen(a, i).mul(widen(b, i)));
+        }
+        return acc.reduceLanes(VectorOperators.ADD) + super.dot(a, b, i, to);
+    }
+
+    @Override
+    void minMax(int[] a, int from, int to, int[] minMax) {
+        IntVector min = IntVector.broadcast(INTS, minMax[0]);
+        IntVector max = IntVector.broadcast(INTS, minMax[1]);
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            IntVector v = IntVector.fromArray(INTS, a, i);
+            min = min.min(v);
+            max = max.max(v);
+        }
+        minMax[0] = min.reduceLanes(VectorOperators.MIN);
+        minMax[1] = max.reduceLanes(VectorOperators.MAX);
+        super.minMax(a, i, to, minMax);
+    }
+
+    @Override
+    void scale(int[] a, int from, int to, int factor) {
+        int i = from;
+        for (int bound = from + INTS.loopBound(to - from); i < bound; i += INTS.length()) {
+            IntVector.fromArray(INTS, a, i).mul(factor).intoArray(a, i);
+        }
+        super.scale(a, i, to, factor);
+    }
+
+    private static LongVector widen(int[] a, int i) {
+        return (LongVector) IntVector.fromArray(WIDENED_INTS, a, i).convertShape(VectorOperators.I2L, LONGS, 0);
+    }
+}